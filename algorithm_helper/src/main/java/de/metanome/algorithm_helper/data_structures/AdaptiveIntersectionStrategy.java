@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Chooses the strategy with the lowest estimated cost for every pair of plis. By default the
+ * array probe, hash probe, sorted merge and bitmap strategies are considered.
+ */
+public class AdaptiveIntersectionStrategy implements IntersectionStrategy {
+
+  protected final List<IntersectionStrategy> strategies;
+
+  public AdaptiveIntersectionStrategy() {
+    this(new ArrayProbeIntersectionStrategy(), new HashProbeIntersectionStrategy(),
+      new SortedMergeIntersectionStrategy(), new BitmapIntersectionStrategy());
+  }
+
+  /**
+   * @param strategies the candidate strategies, on equal costs the first one is chosen
+   */
+  public AdaptiveIntersectionStrategy(IntersectionStrategy... strategies) {
+    if (strategies.length == 0) {
+      throw new IllegalArgumentException("At least one intersection strategy is needed.");
+    }
+    this.strategies = Arrays.asList(strategies);
+  }
+
+  @Override
+  public long estimateCost(PositionListIndex pli, PositionListIndex otherPLI) {
+    return chooseStrategy(pli, otherPLI).estimateCost(pli, otherPLI);
+  }
+
+  @Override
+  public PositionListIndex intersect(PositionListIndex pli, PositionListIndex otherPLI) {
+    return chooseStrategy(pli, otherPLI).intersect(pli, otherPLI);
+  }
+
+  /**
+   * @param pli      the first {@link PositionListIndex}
+   * @param otherPLI the second {@link PositionListIndex}
+   * @return the candidate strategy with the lowest estimated cost
+   */
+  public IntersectionStrategy chooseStrategy(PositionListIndex pli, PositionListIndex otherPLI) {
+    IntersectionStrategy cheapestStrategy = strategies.get(0);
+    long lowestCost = cheapestStrategy.estimateCost(pli, otherPLI);
+    for (IntersectionStrategy strategy : strategies.subList(1, strategies.size())) {
+      long cost = strategy.estimateCost(pli, otherPLI);
+      if (cost < lowestCost) {
+        cheapestStrategy = strategy;
+        lowestCost = cost;
+      }
+    }
+
+    return cheapestStrategy;
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+/**
+ * Materializes the pli with the larger raw key error as array over all rows and probes the
+ * clusters of the other pli (see {@link ClusterIntersector}). Only the rows of non unary clusters
+ * are written to and cleared from the array. The array is the materialization buffer of the
+ * current thread and only costs one entry per row of the relation if the thread does not hold a
+ * large enough buffer yet.
+ */
+public class ArrayProbeIntersectionStrategy implements IntersectionStrategy {
+
+  @Override
+  public long estimateCost(PositionListIndex pli, PositionListIndex otherPLI) {
+    PositionListIndex materializedPLI = getMaterializedPLI(pli, otherPLI);
+    PositionListIndex probingPLI = materializedPLI == pli ? otherPLI : pli;
+
+    // The cluster rows are written and cleared, the probing rows are read and distributed.
+    long cost = 2L * materializedPLI.getNumberOfClusterRows()
+      + 2L * probingPLI.getNumberOfClusterRows();
+    if (!PositionListIndex.hasMaterializationBuffer(materializedPLI.getNumberOfRows())) {
+      cost += materializedPLI.getNumberOfRows();
+    }
+    return cost;
+  }
+
+  @Override
+  public PositionListIndex intersect(PositionListIndex pli, PositionListIndex otherPLI) {
+    PositionListIndex materializedPLI = getMaterializedPLI(pli, otherPLI);
+    PositionListIndex probingPLI = materializedPLI == pli ? otherPLI : pli;
+
+    return materializedPLI.calculateIntersection(probingPLI);
+  }
+
+  /**
+   * In most cases probing is harder than materialization, so the pli with the larger raw key error
+   * is materialized.
+   */
+  protected PositionListIndex getMaterializedPLI(PositionListIndex pli,
+                                                 PositionListIndex otherPLI)
+  {
+    return pli.getRawKeyError() > otherPLI.getRawKeyError() ? pli : otherPLI;
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Represents the clusters of the pli with fewer clusters as bitmaps over all rows and intersects
+ * every cluster of the other pli by a word wise AND with all these bitmaps. Only the words between
+ * the first and the last row of both clusters are combined. The cost grows with the number of
+ * cluster pairs times the number of rows / 64, so this strategy suits plis with very few clusters,
+ * e.g. of low cardinality columns.
+ */
+public class BitmapIntersectionStrategy implements IntersectionStrategy {
+
+  @Override
+  public long estimateCost(PositionListIndex pli, PositionListIndex otherPLI) {
+    long numberOfWords = getNumberOfWords(pli, otherPLI);
+    long numberOfBitmaps = Math.min(pli.size(), otherPLI.size()) + 1;
+
+    return numberOfWords * (numberOfBitmaps + (long) pli.size() * otherPLI.size())
+      + pli.getNumberOfClusterRows() + otherPLI.getNumberOfClusterRows();
+  }
+
+  @Override
+  public PositionListIndex intersect(PositionListIndex pli, PositionListIndex otherPLI) {
+    ClusterSlices bitmapClusters;
+    ClusterSlices probingClusters;
+    if (pli.size() <= otherPLI.size()) {
+      bitmapClusters = new ClusterSlices(pli);
+      probingClusters = new ClusterSlices(otherPLI);
+    }
+    else {
+      bitmapClusters = new ClusterSlices(otherPLI);
+      probingClusters = new ClusterSlices(pli);
+    }
+
+    int numberOfWords = getNumberOfWords(pli, otherPLI);
+    long[][] bitmaps = new long[bitmapClusters.size()][];
+    int[] firstWords = new int[bitmapClusters.size()];
+    int[] lastWords = new int[bitmapClusters.size()];
+    for (int i = 0; i < bitmapClusters.size(); i++) {
+      bitmaps[i] = new long[numberOfWords];
+      firstWords[i] = Integer.MAX_VALUE;
+      setBits(bitmaps[i], bitmapClusters, i, firstWords, lastWords);
+    }
+
+    long[] probingBitmap = new long[numberOfWords];
+    int[] probingWord = new int[2];
+    int[] buffer = new int[Math.min(bitmapClusters.maximumLength, probingClusters.maximumLength)];
+    List<IntArrayList> clusters = new ArrayList<>();
+    int rawKeyError = 0;
+    for (int probingIndex = 0; probingIndex < probingClusters.size(); probingIndex++) {
+      probingWord[0] = Integer.MAX_VALUE;
+      probingWord[1] = 0;
+      setProbingBits(probingBitmap, probingClusters, probingIndex, probingWord);
+
+      for (int i = 0; i < bitmaps.length; i++) {
+        int fromWord = Math.max(firstWords[i], probingWord[0]);
+        int toWord = Math.min(lastWords[i], probingWord[1]);
+        int length = 0;
+        for (int word = fromWord; word <= toWord; word++) {
+          long commonBits = bitmaps[i][word] & probingBitmap[word];
+          while (commonBits != 0) {
+            buffer[length++] = (word << 6) + Long.numberOfTrailingZeros(commonBits);
+            commonBits &= commonBits - 1;
+          }
+        }
+        if (length > 1) {
+          clusters.add(new IntArrayList(buffer, 0, length));
+          rawKeyError += length - 1;
+        }
+      }
+
+      clearProbingBits(probingBitmap, probingClusters, probingIndex);
+    }
+
+    // The rows are extracted from the bitmaps in ascending order.
+    PositionListIndex intersection =
+      new PositionListIndex(clusters, pli.getNumberOfRows(), true);
+    intersection.rawKeyError = rawKeyError;
+    return intersection;
+  }
+
+  protected void setBits(long[] bitmap, ClusterSlices clusters, int clusterIndex,
+                         int[] firstWords, int[] lastWords)
+  {
+    int[] rows = clusters.rows[clusterIndex];
+    int end = clusters.offsets[clusterIndex] + clusters.lengths[clusterIndex];
+    for (int i = clusters.offsets[clusterIndex]; i < end; i++) {
+      int word = rows[i] >>> 6;
+      bitmap[word] |= 1L << rows[i];
+      firstWords[clusterIndex] = Math.min(firstWords[clusterIndex], word);
+      lastWords[clusterIndex] = Math.max(lastWords[clusterIndex], word);
+    }
+  }
+
+  protected void setProbingBits(long[] bitmap, ClusterSlices clusters, int clusterIndex,
+                                int[] probingWord)
+  {
+    int[] rows = clusters.rows[clusterIndex];
+    int end = clusters.offsets[clusterIndex] + clusters.lengths[clusterIndex];
+    for (int i = clusters.offsets[clusterIndex]; i < end; i++) {
+      int word = rows[i] >>> 6;
+      bitmap[word] |= 1L << rows[i];
+      probingWord[0] = Math.min(probingWord[0], word);
+      probingWord[1] = Math.max(probingWord[1], word);
+    }
+  }
+
+  protected void clearProbingBits(long[] bitmap, ClusterSlices clusters, int clusterIndex) {
+    int[] rows = clusters.rows[clusterIndex];
+    int end = clusters.offsets[clusterIndex] + clusters.lengths[clusterIndex];
+    for (int i = clusters.offsets[clusterIndex]; i < end; i++) {
+      bitmap[rows[i] >>> 6] = 0;
+    }
+  }
+
+  protected static int getNumberOfWords(PositionListIndex pli, PositionListIndex otherPLI) {
+    return (Math.max(pli.getNumberOfRows(), otherPLI.getNumberOfRows()) + 63) >>> 6;
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.Arrays;
+
+/**
+ * Normalized form of the clusters of a {@link PositionListIndex} used for equality and hashing.
+ * The rows of every cluster are sorted and duplicate rows removed, the clusters are ordered by
+ * their first row. Two position list indices over the same number of rows are equal if and only if
+ * their canonical clusters are equal.
+ * @see PositionListIndex#equals(Object)
+ */
+final class CanonicalClusters {
+
+  protected final int[] rows;
+  protected final int[] clusterOffsets;
+  protected final int hashCode;
+
+  /**
+   * @param pli the {@link PositionListIndex} to normalize
+   */
+  CanonicalClusters(PositionListIndex pli) {
+    final int[] sortedRows = new int[pli.getRawKeyError() + pli.size()];
+    final int[] sortedOffsets = new int[pli.size() + 1];
+    final int[] numberOfClusters = {0};
+    pli.visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        int start = sortedOffsets[numberOfClusters[0]];
+        System.arraycopy(rows, offset, sortedRows, start, length);
+        Arrays.sort(sortedRows, start, start + length);
+
+        int end = start;
+        for (int i = start; i < start + length; i++) {
+          if ((end == start) || (sortedRows[end - 1] != sortedRows[i])) {
+            sortedRows[end++] = sortedRows[i];
+          }
+        }
+        sortedOffsets[++numberOfClusters[0]] = end;
+        return true;
+      }
+    });
+
+    // Order the clusters by their first row, empty clusters go first.
+    long[] clusterOrder = new long[numberOfClusters[0]];
+    for (int clusterIndex = 0; clusterIndex < clusterOrder.length; clusterIndex++) {
+      int start = sortedOffsets[clusterIndex];
+      long firstRow = start == sortedOffsets[clusterIndex + 1] ? -1 : sortedRows[start];
+      clusterOrder[clusterIndex] = (firstRow << 32) | clusterIndex;
+    }
+    Arrays.sort(clusterOrder);
+
+    this.rows = new int[sortedOffsets[numberOfClusters[0]]];
+    this.clusterOffsets = new int[numberOfClusters[0] + 1];
+    int position = 0;
+    int hash = 1;
+    for (int i = 0; i < clusterOrder.length; i++) {
+      int clusterIndex = (int) clusterOrder[i];
+      int start = sortedOffsets[clusterIndex];
+      int length = sortedOffsets[clusterIndex + 1] - start;
+      System.arraycopy(sortedRows, start, this.rows, position, length);
+      position += length;
+      this.clusterOffsets[i + 1] = position;
+      hash = 31 * hash + length;
+      for (int j = start; j < start + length; j++) {
+        hash = 31 * hash + sortedRows[j];
+      }
+    }
+    this.hashCode = hash;
+  }
+
+  /**
+   * @return the estimated number of heap bytes held by the canonical clusters
+   */
+  long getMemorySize() {
+    return PositionListIndex.OBJECT_MEMORY_SIZE
+      + PositionListIndex.getArrayMemorySize(rows.length, 4)
+      + PositionListIndex.getArrayMemorySize(clusterOffsets.length, 4);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CanonicalClusters)) {
+      return false;
+    }
+    CanonicalClusters other = (CanonicalClusters) obj;
+
+    return (hashCode == other.hashCode)
+      && Arrays.equals(clusterOffsets, other.clusterOffsets)
+      && Arrays.equals(rows, other.rows);
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+/**
+ * Probes the visited clusters against a materialized {@link PositionListIndex} like the {@link
+ * ClusterIntersector}, but only counts the clusters and the raw key error of the intersection.
+ * @see PositionListIndex#countIntersection(PositionListIndex)
+ */
+class ClusterIntersectionCounter implements ClusterVisitor {
+
+  protected final int[] materializedPLI;
+  protected final int[] partialClusterSizes;
+  protected final int[] touchedClusterIds;
+  protected int numberOfClusters = 0;
+  protected int rawKeyError = 0;
+
+  /**
+   * @param materializedPLI  the materialized pli (see {@link PositionListIndex#asArray()})
+   * @param numberOfClusters the number of clusters in the materialized pli
+   */
+  ClusterIntersectionCounter(int[] materializedPLI, int numberOfClusters) {
+    this.materializedPLI = materializedPLI;
+    this.partialClusterSizes = new int[numberOfClusters + 1];
+    this.touchedClusterIds = new int[numberOfClusters + 1];
+  }
+
+  @Override
+  public boolean visitCluster(int[] rows, int offset, int length) {
+    int numberOfTouchedClusterIds = 0;
+    for (int i = offset; i < offset + length; i++) {
+      int rowIndex = rows[i];
+      if ((materializedPLI.length <= rowIndex) ||
+        (materializedPLI[rowIndex] == PositionListIndex.SINGLETON_VALUE)) {
+        continue;
+      }
+
+      int clusterId = materializedPLI[rowIndex];
+      if (partialClusterSizes[clusterId] == 0) {
+        touchedClusterIds[numberOfTouchedClusterIds++] = clusterId;
+      }
+      partialClusterSizes[clusterId]++;
+    }
+
+    for (int i = 0; i < numberOfTouchedClusterIds; i++) {
+      int partialClusterSize = partialClusterSizes[touchedClusterIds[i]];
+      if (partialClusterSize > 1) {
+        numberOfClusters++;
+        rawKeyError += partialClusterSize - 1;
+      }
+      partialClusterSizes[touchedClusterIds[i]] = 0;
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the number of clusters (first) and the raw key error (second) of the intersection
+   */
+  public IntPair getCount() {
+    return new IntPair(numberOfClusters, rawKeyError);
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Probes the visited clusters against a materialized {@link PositionListIndex} and collects the
+ * clusters of the intersection. As rows from different probing clusters can never end up in the
+ * same result cluster, the result clusters are collected per probing cluster in an array indexed by
+ * the materialized pli's cluster identifiers. No intermediate keys are allocated per row. Every
+ * probing cluster is processed in two passes: the first pass counts the rows per partial cluster,
+ * the second pass fills exactly sized arrays for the non unary partial clusters only.
+ * @see PositionListIndex#calculateIntersection(PositionListIndex, int)
+ */
+class ClusterIntersector implements ClusterVisitor {
+
+  protected final int[] materializedPLI;
+  protected final int[] partialClusterSizes;
+  protected final int[][] partialClusters;
+  protected final int[] touchedClusterIds;
+  protected int[] probedClusterIds = new int[0];
+  protected final List<IntArrayList> clusters = new ArrayList<>();
+  protected final int maximumRawKeyError;
+  protected int rawKeyError = 0;
+
+  /**
+   * @param materializedPLI    the materialized pli (see {@link PositionListIndex#asArray()})
+   * @param numberOfClusters   the number of clusters in the materialized pli
+   * @param maximumRawKeyError the raw key error of the intersection at which probing is aborted
+   */
+  ClusterIntersector(int[] materializedPLI, int numberOfClusters, int maximumRawKeyError) {
+    this.materializedPLI = materializedPLI;
+    // Cluster identifiers range from SINGLETON_VALUE + 1 to numberOfClusters.
+    this.partialClusterSizes = new int[numberOfClusters + 1];
+    this.partialClusters = new int[numberOfClusters + 1][];
+    this.touchedClusterIds = new int[numberOfClusters + 1];
+    this.maximumRawKeyError = maximumRawKeyError;
+  }
+
+  /**
+   * Creates an intersector with its own result clusters that reuses the scratch arrays of the given
+   * intersector. The scratch arrays are reset after every probing cluster, so intersectors sharing
+   * them may probe one after another but not concurrently.
+   * @param scratchIntersector the intersector whose scratch arrays are reused
+   * @param maximumRawKeyError the raw key error of the intersection at which probing is aborted
+   */
+  ClusterIntersector(ClusterIntersector scratchIntersector, int maximumRawKeyError) {
+    this.materializedPLI = scratchIntersector.materializedPLI;
+    this.partialClusterSizes = scratchIntersector.partialClusterSizes;
+    this.partialClusters = scratchIntersector.partialClusters;
+    this.touchedClusterIds = scratchIntersector.touchedClusterIds;
+    this.probedClusterIds = scratchIntersector.probedClusterIds;
+    this.maximumRawKeyError = maximumRawKeyError;
+  }
+
+  /**
+   * Constructor for subclasses that look up the cluster identifiers of the materialized pli in
+   * their own structure (see {@link #getClusterId(int)}).
+   * @param numberOfClusters   the number of clusters in the materialized pli
+   * @param maximumRawKeyError the raw key error of the intersection at which probing is aborted
+   */
+  protected ClusterIntersector(int numberOfClusters, int maximumRawKeyError) {
+    this(null, numberOfClusters, maximumRawKeyError);
+  }
+
+  @Override
+  public boolean visitCluster(int[] rows, int offset, int length) {
+    int numberOfTouchedClusterIds = countPartialClusters(rows, offset, length);
+    allocatePartialClusters(numberOfTouchedClusterIds);
+    fillPartialClusters(rows, offset, length);
+
+    // Reset the partial clusters for the next probing cluster.
+    for (int i = 0; i < numberOfTouchedClusterIds; i++) {
+      partialClusterSizes[touchedClusterIds[i]] = 0;
+      partialClusters[touchedClusterIds[i]] = null;
+    }
+
+    return rawKeyError <= maximumRawKeyError;
+  }
+
+  /**
+   * Counts the rows of the probing cluster per cluster identifier in the materialized pli. The
+   * identifiers are remembered per row for the second pass.
+   * @return the number of touched cluster identifiers
+   */
+  protected int countPartialClusters(int[] rows, int offset, int length) {
+    if (probedClusterIds.length < length) {
+      probedClusterIds = new int[Math.max(length, 2 * probedClusterIds.length)];
+    }
+
+    int numberOfTouchedClusterIds = 0;
+    for (int i = 0; i < length; i++) {
+      int clusterId = getClusterId(rows[offset + i]);
+      probedClusterIds[i] = clusterId;
+      if (clusterId == PositionListIndex.SINGLETON_VALUE) {
+        continue;
+      }
+
+      if (partialClusterSizes[clusterId] == 0) {
+        touchedClusterIds[numberOfTouchedClusterIds++] = clusterId;
+      }
+      partialClusterSizes[clusterId]++;
+    }
+    return numberOfTouchedClusterIds;
+  }
+
+  /**
+   * Allocates an exactly sized result cluster for every non unary partial cluster. The partial
+   * cluster sizes are reset to be used as fill positions.
+   */
+  protected void allocatePartialClusters(int numberOfTouchedClusterIds) {
+    for (int i = 0; i < numberOfTouchedClusterIds; i++) {
+      int clusterId = touchedClusterIds[i];
+      int partialClusterSize = partialClusterSizes[clusterId];
+      if (partialClusterSize > 1) {
+        int[] partialCluster = new int[partialClusterSize];
+        partialClusters[clusterId] = partialCluster;
+        clusters.add(IntArrayList.wrap(partialCluster));
+        rawKeyError += partialClusterSize - 1;
+      }
+      partialClusterSizes[clusterId] = 0;
+    }
+  }
+
+  /**
+   * Copies the rows of the probing cluster into the allocated result clusters.
+   */
+  protected void fillPartialClusters(int[] rows, int offset, int length) {
+    for (int i = 0; i < length; i++) {
+      int clusterId = probedClusterIds[i];
+      if (clusterId == PositionListIndex.SINGLETON_VALUE) {
+        continue;
+      }
+
+      int[] partialCluster = partialClusters[clusterId];
+      if (partialCluster != null) {
+        partialCluster[partialClusterSizes[clusterId]++] = rows[offset + i];
+      }
+    }
+  }
+
+  /**
+   * @param rowIndex the probed row
+   * @return the cluster identifier of the row in the materialized pli or {@link
+   * PositionListIndex#SINGLETON_VALUE}
+   */
+  protected int getClusterId(int rowIndex) {
+    if (materializedPLI.length <= rowIndex) {
+      return PositionListIndex.SINGLETON_VALUE;
+    }
+    return materializedPLI[rowIndex];
+  }
+
+  /**
+   * @return the clusters of the intersection
+   */
+  public List<IntArrayList> getClusters() {
+    return clusters;
+  }
+
+  /**
+   * @return the raw key error of the intersection
+   */
+  public int getRawKeyError() {
+    return rawKeyError;
+  }
+
+}
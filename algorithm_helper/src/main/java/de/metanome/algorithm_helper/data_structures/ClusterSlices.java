@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+/**
+ * Random access view on the clusters of a {@link PositionListIndex}. Every cluster is referenced
+ * as a slice of a row array. Plain, compact and immutable position list indices pass their own
+ * storage to cluster visitors, so their clusters are not copied. All other representations reuse
+ * buffers during visits and are copied into a {@link CompactPositionListIndex} first.
+ */
+class ClusterSlices {
+
+  protected final int[][] rows;
+  protected final int[] offsets;
+  protected final int[] lengths;
+  protected int maximumLength = 0;
+
+  /**
+   * @param pli the {@link PositionListIndex} whose clusters are referenced
+   */
+  ClusterSlices(PositionListIndex pli) {
+    if (pli instanceof LazyPositionListIndex) {
+      ((LazyPositionListIndex) pli).materialize();
+    }
+    if ((pli.clusters == null) && (!(pli instanceof CompactPositionListIndex))
+      && (!(pli instanceof ImmutablePositionListIndex))) {
+      pli = new CompactPositionListIndex(pli);
+    }
+
+    this.rows = new int[pli.size()][];
+    this.offsets = new int[pli.size()];
+    this.lengths = new int[pli.size()];
+    pli.visitClusters(new ClusterVisitor() {
+      protected int clusterIndex = 0;
+
+      @Override
+      public boolean visitCluster(int[] clusterRows, int offset, int length) {
+        rows[clusterIndex] = clusterRows;
+        offsets[clusterIndex] = offset;
+        lengths[clusterIndex] = length;
+        maximumLength = Math.max(maximumLength, length);
+        clusterIndex++;
+        return true;
+      }
+    });
+  }
+
+  /**
+   * @return the number of clusters
+   */
+  public int size() {
+    return lengths.length;
+  }
+
+  /**
+   * @param clusterIndex the index of the cluster
+   * @return the first row of the cluster
+   */
+  public int getFirstRow(int clusterIndex) {
+    return rows[clusterIndex][offsets[clusterIndex]];
+  }
+
+  /**
+   * @param clusterIndex the index of the cluster
+   * @return the last row of the cluster
+   */
+  public int getLastRow(int clusterIndex) {
+    return rows[clusterIndex][offsets[clusterIndex] + lengths[clusterIndex] - 1];
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+/**
+ * Visits the non unary clusters of a {@link PositionListIndex} independent of the way the clusters
+ * are stored. Every cluster is passed as slice of an int array.
+ * @see PositionListIndex#visitClusters(ClusterVisitor)
+ */
+public interface ClusterVisitor {
+
+  /**
+   * Visits one cluster. The cluster's rows are stored in rows[offset] to rows[offset + length - 1].
+   * The array may be reused by the {@link PositionListIndex} and must neither be modified nor
+   * retained.
+   * @param rows   the array containing the cluster's rows
+   * @param offset the index of the cluster's first row
+   * @param length the number of rows in the cluster
+   * @return false to stop the visit
+   */
+  boolean visitCluster(int[] rows, int offset, int length);
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.Arrays;
+
+/**
+ * {@link ClusterIntersector} that writes the clusters of the intersection directly into the flat
+ * arrays of a {@link CompactPositionListIndex}. The non unary partial clusters of every probing
+ * cluster are allocated as consecutive ranges of the row indices instead of separate arrays.
+ * @see CompactPositionListIndex#probeIntersection(int[], PositionListIndex, int)
+ */
+class CompactClusterIntersector extends ClusterIntersector {
+
+  protected int[] rowIndices = new int[16];
+  protected int numberOfRowIndices = 0;
+  protected int[] clusterOffsets = new int[16];
+  protected int numberOfIntersectedClusters = 0;
+
+  /**
+   * @param materializedPLI    the materialized pli (see {@link PositionListIndex#asArray()})
+   * @param numberOfClusters   the number of clusters in the materialized pli
+   * @param maximumRawKeyError the raw key error of the intersection at which probing is aborted
+   */
+  CompactClusterIntersector(int[] materializedPLI, int numberOfClusters, int maximumRawKeyError) {
+    super(materializedPLI, numberOfClusters, maximumRawKeyError);
+  }
+
+  /**
+   * Reserves a range of the row indices for every non unary partial cluster. The partial cluster
+   * sizes are set to the start of the ranges to be used as fill positions.
+   */
+  @Override
+  protected void allocatePartialClusters(int numberOfTouchedClusterIds) {
+    int numberOfPartialClusterRows = 0;
+    int numberOfPartialClusters = 0;
+    for (int i = 0; i < numberOfTouchedClusterIds; i++) {
+      int partialClusterSize = partialClusterSizes[touchedClusterIds[i]];
+      if (partialClusterSize > 1) {
+        numberOfPartialClusterRows += partialClusterSize;
+        numberOfPartialClusters++;
+      }
+    }
+    ensureCapacity(numberOfPartialClusterRows, numberOfPartialClusters);
+
+    for (int i = 0; i < numberOfTouchedClusterIds; i++) {
+      int clusterId = touchedClusterIds[i];
+      int partialClusterSize = partialClusterSizes[clusterId];
+      if (partialClusterSize > 1) {
+        partialClusters[clusterId] = rowIndices;
+        partialClusterSizes[clusterId] = numberOfRowIndices;
+        numberOfRowIndices += partialClusterSize;
+        clusterOffsets[++numberOfIntersectedClusters] = numberOfRowIndices;
+        rawKeyError += partialClusterSize - 1;
+      }
+      else {
+        partialClusterSizes[clusterId] = 0;
+      }
+    }
+  }
+
+  protected void ensureCapacity(int numberOfAddedRows, int numberOfAddedClusters) {
+    if (rowIndices.length < numberOfRowIndices + numberOfAddedRows) {
+      rowIndices = Arrays.copyOf(rowIndices,
+        Math.max(numberOfRowIndices + numberOfAddedRows, 2 * rowIndices.length));
+    }
+    if (clusterOffsets.length < numberOfIntersectedClusters + numberOfAddedClusters + 1) {
+      clusterOffsets = Arrays.copyOf(clusterOffsets,
+        Math.max(numberOfIntersectedClusters + numberOfAddedClusters + 1,
+          2 * clusterOffsets.length));
+    }
+  }
+
+  /**
+   * @param numberOfRows the number of rows in the indexed column
+   * @return the intersection as {@link CompactPositionListIndex}
+   */
+  public CompactPositionListIndex getIntersection(int numberOfRows) {
+    CompactPositionListIndex intersection = new CompactPositionListIndex(
+      Arrays.copyOf(rowIndices, numberOfRowIndices),
+      Arrays.copyOf(clusterOffsets, numberOfIntersectedClusters + 1), numberOfRows);
+    intersection.rawKeyError = rawKeyError;
+    return intersection;
+  }
+
+}
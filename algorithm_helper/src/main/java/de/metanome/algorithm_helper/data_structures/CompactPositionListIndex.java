@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntIterator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+/**
+ * A {@link PositionListIndex} that stores all clusters in one flat array of row indices
+ * (compressed sparse row layout). The clusters are separated by an array of cluster offsets: the
+ * cluster i consists of the rows rowIndices[clusterOffsets[i]] to rowIndices[clusterOffsets[i + 1] -
+ * 1]. The position list index ((0, 1), (2, 4), (3, 5)) is stored as rowIndices [0, 1, 2, 4, 3, 5]
+ * and clusterOffsets [0, 2, 4, 6]. Compared to a list of {@link IntArrayList}s there is no object
+ * and no slack capacity per cluster and clusters are iterated sequentially.
+ */
+public class CompactPositionListIndex extends PositionListIndex {
+
+  private static final long serialVersionUID = 1;
+  protected int[] rowIndices;
+  protected int[] clusterOffsets;
+
+  /**
+   * @param rowIndices     the rows of all clusters, one cluster after the other
+   * @param clusterOffsets the start index of every cluster in rowIndices followed by the length of
+   *                       rowIndices
+   * @param numberOfRows   the number of rows in the indexed column
+   */
+  public CompactPositionListIndex(int[] rowIndices, int[] clusterOffsets, int numberOfRows) {
+    super(numberOfRows);
+    this.rowIndices = rowIndices;
+    this.clusterOffsets = clusterOffsets;
+  }
+
+  /**
+   * Constructs a {@link CompactPositionListIndex} containing the clusters of the given {@link
+   * PositionListIndex}.
+   * @param positionListIndex the pli to copy
+   */
+  public CompactPositionListIndex(PositionListIndex positionListIndex) {
+    super(positionListIndex.getNumberOfRows());
+    this.rowIndices =
+      new int[positionListIndex.getRawKeyError() + positionListIndex.size()];
+    this.clusterOffsets = new int[positionListIndex.size() + 1];
+    positionListIndex.visitClusters(new ClusterVisitor() {
+      protected int clusterIndex = 0;
+
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        int clusterOffset = clusterOffsets[clusterIndex];
+        System.arraycopy(rows, offset, rowIndices, clusterOffset, length);
+        clusterIndex++;
+        clusterOffsets[clusterIndex] = clusterOffset + length;
+        return true;
+      }
+    });
+    this.rawKeyError = positionListIndex.getRawKeyError();
+    this.clustersSorted = positionListIndex.hasSortedClusters();
+  }
+
+  /**
+   * Constructs a {@link CompactPositionListIndex} from boxed clusters.
+   * @param clusters     the non unary clusters
+   * @param numberOfRows the number of rows in the indexed column
+   */
+  public CompactPositionListIndex(List<IntArrayList> clusters, int numberOfRows) {
+    this(new PositionListIndex(clusters, numberOfRows));
+  }
+
+  /**
+   * Returns a newly created boxed copy of the clusters. Modifications of the returned clusters are
+   * not reflected in the {@link CompactPositionListIndex}.
+   * @return a copy of the non unary clusters
+   */
+  @Override
+  public List<IntArrayList> getClusters() {
+    List<IntArrayList> clusters = new ArrayList<>(size());
+    for (int i = 0; i < size(); i++) {
+      clusters.add(new IntArrayList(rowIndices, clusterOffsets[i],
+        clusterOffsets[i + 1] - clusterOffsets[i]));
+    }
+    return clusters;
+  }
+
+  @Override
+  public boolean visitClusters(ClusterVisitor visitor) {
+    for (int i = 0; i < size(); i++) {
+      if (!visitor.visitCluster(rowIndices, clusterOffsets[i],
+        clusterOffsets[i + 1] - clusterOffsets[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public IntIterator clusterSizeIterator() {
+    return new AbstractIntIterator() {
+      protected int clusterIndex = 0;
+
+      @Override
+      public boolean hasNext() {
+        return clusterIndex < size();
+      }
+
+      @Override
+      public int nextInt() {
+        clusterIndex++;
+        return clusterOffsets[clusterIndex] - clusterOffsets[clusterIndex - 1];
+      }
+    };
+  }
+
+  /**
+   * Creates a complete (deep) copy of the {@link CompactPositionListIndex}.
+   * @return cloned CompactPositionListIndex
+   */
+  @Override
+  public CompactPositionListIndex clone() {
+    CompactPositionListIndex clone = new CompactPositionListIndex(
+      Arrays.copyOf(rowIndices, rowIndices.length),
+      Arrays.copyOf(clusterOffsets, clusterOffsets.length),
+      getNumberOfRows());
+    clone.rawKeyError = this.rawKeyError;
+    clone.largestClusterSize = this.largestClusterSize;
+    clone.clustersSorted = this.clustersSorted;
+    return clone;
+  }
+
+  /**
+   * Probes the clusters of the given pli against the materialization of this pli and writes the
+   * intersection directly into the flat arrays of a new {@link CompactPositionListIndex}.
+   * @param materializedPLI    the materialization of this pli (see {@link #asArray()})
+   * @param probingPLI         the {@link PositionListIndex} whose clusters are probed
+   * @param maximumRawKeyError the maximum raw key error of the intersection
+   * @return the intersected {@link CompactPositionListIndex} or null if its raw key error exceeds
+   * the maximum
+   */
+  @Override
+  protected PositionListIndex probeIntersection(int[] materializedPLI,
+                                                PositionListIndex probingPLI,
+                                                int maximumRawKeyError)
+  {
+    CompactClusterIntersector intersector =
+      new CompactClusterIntersector(materializedPLI, size(), maximumRawKeyError);
+    if (!probingPLI.visitClusters(intersector)) {
+      return null;
+    }
+
+    // The rows of every intersected cluster keep the order of the probing cluster.
+    CompactPositionListIndex intersection = intersector.getIntersection(getNumberOfRows());
+    intersection.clustersSorted = probingPLI.hasSortedClusters();
+    return intersection;
+  }
+
+  @Override
+  public int[] asArray(int[] materializedPli) {
+    for (int i = 0; i < size(); i++) {
+      int clusterId = SINGLETON_VALUE + 1 + i;
+      for (int j = clusterOffsets[i]; j < clusterOffsets[i + 1]; j++) {
+        materializedPli[rowIndices[j]] = clusterId;
+      }
+    }
+
+    return materializedPli;
+  }
+
+  @Override
+  public void clearArray(int[] materializedPli) {
+    for (int rowIndex : rowIndices) {
+      materializedPli[rowIndex] = SINGLETON_VALUE;
+    }
+  }
+
+  @Override
+  public int size() {
+    return clusterOffsets.length - 1;
+  }
+
+  @Override
+  public long getMemorySize() {
+    return super.getMemorySize() + getArrayMemorySize(rowIndices.length, 4)
+      + getArrayMemorySize(clusterOffsets.length, 4);
+  }
+
+  @Override
+  protected int calculateRawKeyError() {
+    return rowIndices.length - size();
+  }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntIterator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+/**
+ * A {@link PositionListIndex} that stores its clusters compressed. The rows of every cluster are
+ * sorted and stored as variable length encoded differences between consecutive rows, preceded by
+ * the cluster's size. Large clusters of close rows need about one byte per row instead of four.
+ * Clusters are decompressed one at a time while they are visited, so intersections only need a
+ * buffer for the largest cluster.
+ */
+public class CompressedPositionListIndex extends PositionListIndex {
+
+  private static final long serialVersionUID = 1;
+  protected byte[] compressedClusters;
+  protected int numberOfClusters;
+
+  /**
+   * Constructs a {@link CompressedPositionListIndex} containing the clusters of the given {@link
+   * PositionListIndex}.
+   * @param positionListIndex the pli to compress
+   */
+  public CompressedPositionListIndex(PositionListIndex positionListIndex) {
+    super(positionListIndex.getNumberOfRows());
+    this.largestClusterSize = 0;
+
+    final ByteArrayBuilder builder = new ByteArrayBuilder(
+      positionListIndex.getRawKeyError() + 2 * positionListIndex.size());
+    positionListIndex.visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        int[] sortedRows = Arrays.copyOfRange(rows, offset, offset + length);
+        Arrays.sort(sortedRows);
+
+        builder.writeVarInt(length);
+        int previousRow = 0;
+        for (int row : sortedRows) {
+          builder.writeVarInt(row - previousRow);
+          previousRow = row;
+        }
+
+        numberOfClusters++;
+        largestClusterSize = Math.max(largestClusterSize, length);
+        return true;
+      }
+    });
+
+    this.compressedClusters = builder.toByteArray();
+    this.rawKeyError = positionListIndex.getRawKeyError();
+    this.clustersSorted = true;
+  }
+
+  protected CompressedPositionListIndex(byte[] compressedClusters, int numberOfClusters,
+                                        int largestClusterSize, int numberOfRows)
+  {
+    super(numberOfRows);
+    this.compressedClusters = compressedClusters;
+    this.numberOfClusters = numberOfClusters;
+    this.largestClusterSize = largestClusterSize;
+    this.clustersSorted = true;
+  }
+
+  /**
+   * Constructs a {@link CompressedPositionListIndex} from boxed clusters.
+   * @param clusters     the non unary clusters
+   * @param numberOfRows the number of rows in the indexed column
+   */
+  public CompressedPositionListIndex(List<IntArrayList> clusters, int numberOfRows) {
+    this(new PositionListIndex(clusters, numberOfRows));
+  }
+
+  /**
+   * Returns a newly created decompressed copy of the clusters. Modifications of the returned
+   * clusters are not reflected in the {@link CompressedPositionListIndex}.
+   * @return a copy of the non unary clusters
+   */
+  @Override
+  public List<IntArrayList> getClusters() {
+    final List<IntArrayList> clusters = new ArrayList<>(size());
+    visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        clusters.add(new IntArrayList(rows, offset, length));
+        return true;
+      }
+    });
+    return clusters;
+  }
+
+  /**
+   * Decompresses the clusters one after the other into a shared buffer and passes them to the
+   * visitor.
+   * @param visitor the visitor to pass the clusters to
+   * @return false iff the visitor stopped the visit
+   */
+  @Override
+  public boolean visitClusters(ClusterVisitor visitor) {
+    int[] buffer = new int[largestClusterSize];
+    VarIntReader reader = new VarIntReader(compressedClusters);
+    for (int i = 0; i < numberOfClusters; i++) {
+      int length = reader.readVarInt();
+      int row = 0;
+      for (int j = 0; j < length; j++) {
+        row += reader.readVarInt();
+        buffer[j] = row;
+      }
+      if (!visitor.visitCluster(buffer, 0, length)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads the cluster sizes and skips the rows without decompressing them.
+   * @return an iterator over the cluster sizes
+   */
+  @Override
+  public IntIterator clusterSizeIterator() {
+    final VarIntReader reader = new VarIntReader(compressedClusters);
+    return new AbstractIntIterator() {
+      protected int clusterIndex = 0;
+
+      @Override
+      public boolean hasNext() {
+        return clusterIndex < numberOfClusters;
+      }
+
+      @Override
+      public int nextInt() {
+        clusterIndex++;
+        int length = reader.readVarInt();
+        reader.skipVarInts(length);
+        return length;
+      }
+    };
+  }
+
+  /**
+   * Creates a complete (deep) copy of the {@link CompressedPositionListIndex}.
+   * @return cloned CompressedPositionListIndex
+   */
+  @Override
+  public CompressedPositionListIndex clone() {
+    CompressedPositionListIndex clone = new CompressedPositionListIndex(
+      Arrays.copyOf(compressedClusters, compressedClusters.length), numberOfClusters,
+      largestClusterSize, getNumberOfRows());
+    clone.rawKeyError = this.rawKeyError;
+    return clone;
+  }
+
+  @Override
+  public int[] asArray(int[] materializedPli) {
+    VarIntReader reader = new VarIntReader(compressedClusters);
+    for (int i = 0; i < numberOfClusters; i++) {
+      int clusterId = SINGLETON_VALUE + 1 + i;
+      int length = reader.readVarInt();
+      int row = 0;
+      for (int j = 0; j < length; j++) {
+        row += reader.readVarInt();
+        materializedPli[row] = clusterId;
+      }
+    }
+
+    return materializedPli;
+  }
+
+  @Override
+  public int size() {
+    return numberOfClusters;
+  }
+
+  @Override
+  public long getMemorySize() {
+    return super.getMemorySize() + getArrayMemorySize(compressedClusters.length, 1);
+  }
+
+  /**
+   * @return the number of bytes needed to store the compressed clusters
+   */
+  public int getCompressedSize() {
+    return compressedClusters.length;
+  }
+
+  /**
+   * A growable byte array for variable length encoded ints. Every byte stores 7 bits of the value,
+   * the highest bit marks that another byte follows.
+   */
+  protected static class ByteArrayBuilder {
+
+    protected byte[] bytes;
+    protected int size = 0;
+
+    public ByteArrayBuilder(int initialCapacity) {
+      this.bytes = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    public void writeVarInt(int value) {
+      if (bytes.length < size + 5) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 5));
+      }
+
+      while ((value & ~0x7F) != 0) {
+        bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    public byte[] toByteArray() {
+      return Arrays.copyOf(bytes, size);
+    }
+  }
+
+  /**
+   * Reads the variable length encoded ints written by the {@link ByteArrayBuilder} one after the
+   * other.
+   */
+  protected static class VarIntReader {
+
+    protected final byte[] bytes;
+    protected int position = 0;
+
+    public VarIntReader(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    public int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte currentByte;
+      do {
+        currentByte = bytes[position++];
+        value |= (currentByte & 0x7F) << shift;
+        shift += 7;
+      }
+      while (currentByte < 0);
+
+      return value;
+    }
+
+    public void skipVarInts(int count) {
+      // Only the last byte of every value has the highest bit cleared.
+      while (count > 0) {
+        if (bytes[position++] >= 0) {
+          count--;
+        }
+      }
+    }
+  }
+
+}
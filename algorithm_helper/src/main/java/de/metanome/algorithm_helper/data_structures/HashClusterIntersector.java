@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * {@link ClusterIntersector} that looks up the cluster identifiers of the materialized pli in a
+ * hash map that only holds the rows of non unary clusters. Its size does not depend on the number
+ * of rows in the relation.
+ * @see HashProbeIntersectionStrategy
+ */
+class HashClusterIntersector extends ClusterIntersector {
+
+  protected final Int2IntOpenHashMap materializedRows;
+
+  /**
+   * @param materializedRows   the cluster identifier of every row in a non unary cluster
+   * @param numberOfClusters   the number of clusters in the materialized pli
+   * @param maximumRawKeyError the raw key error of the intersection at which probing is aborted
+   */
+  HashClusterIntersector(Int2IntOpenHashMap materializedRows, int numberOfClusters,
+                         int maximumRawKeyError)
+  {
+    super(numberOfClusters, maximumRawKeyError);
+    this.materializedRows = materializedRows;
+  }
+
+  @Override
+  protected int getClusterId(int rowIndex) {
+    return materializedRows.get(rowIndex);
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * Materializes the pli with fewer rows in non unary clusters as hash map and probes the clusters
+ * of the other pli (see {@link HashClusterIntersector}). The hash map only holds the rows of non
+ * unary clusters, so this strategy suits sparse plis over large relations.
+ */
+public class HashProbeIntersectionStrategy implements IntersectionStrategy {
+
+  protected static final int HASH_ACCESS_COST = 4;
+
+  @Override
+  public long estimateCost(PositionListIndex pli, PositionListIndex otherPLI) {
+    PositionListIndex materializedPLI = getMaterializedPLI(pli, otherPLI);
+    PositionListIndex probingPLI = materializedPLI == pli ? otherPLI : pli;
+
+    return HASH_ACCESS_COST * ((long) materializedPLI.getNumberOfClusterRows()
+      + probingPLI.getNumberOfClusterRows()) + probingPLI.getNumberOfClusterRows();
+  }
+
+  @Override
+  public PositionListIndex intersect(PositionListIndex pli, PositionListIndex otherPLI) {
+    PositionListIndex materializedPLI = getMaterializedPLI(pli, otherPLI);
+    PositionListIndex probingPLI = materializedPLI == pli ? otherPLI : pli;
+
+    final Int2IntOpenHashMap materializedRows =
+      new Int2IntOpenHashMap(materializedPLI.getNumberOfClusterRows());
+    materializedRows.defaultReturnValue(PositionListIndex.SINGLETON_VALUE);
+    materializedPLI.visitClusters(new ClusterVisitor() {
+      protected int clusterId = PositionListIndex.SINGLETON_VALUE + 1;
+
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+          materializedRows.put(rows[i], clusterId);
+        }
+        clusterId++;
+        return true;
+      }
+    });
+
+    HashClusterIntersector intersector =
+      new HashClusterIntersector(materializedRows, materializedPLI.size(), Integer.MAX_VALUE);
+    probingPLI.visitClusters(intersector);
+
+    // The rows of every intersected cluster keep the order of the probing cluster.
+    PositionListIndex intersection = new PositionListIndex(intersector.getClusters(),
+      pli.getNumberOfRows(), probingPLI.hasSortedClusters());
+    intersection.rawKeyError = intersector.getRawKeyError();
+    return intersection;
+  }
+
+  protected PositionListIndex getMaterializedPLI(PositionListIndex pli,
+                                                 PositionListIndex otherPLI)
+  {
+    return pli.getNumberOfClusterRows() <= otherPLI.getNumberOfClusterRows() ? pli : otherPLI;
+  }
+
+}
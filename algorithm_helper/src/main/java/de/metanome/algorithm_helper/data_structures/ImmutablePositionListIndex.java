@@ -0,0 +1,264 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntIterator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntIterators;
+
+/**
+ * An immutable {@link PositionListIndex} that can be shared between threads without
+ * synchronization and without defensive copies. The clusters are copied into final arrays in the
+ * layout of the {@link CompactPositionListIndex} and all statistics are calculated eagerly, so the
+ * pli is safely published by the final field semantics of the Java memory model. {@link
+ * #getClusters()} returns copies, single clusters can be read through {@link
+ * #clusterIterator(int)}. The canonical clusters used for equality are still cached lazily, which
+ * is a benign race as they are immutable themselves. <p/> Intersections with immutable plis are
+ * ordinary mutable plis, which can be frozen again by {@link #copyOf(PositionListIndex)}.
+ */
+public final class ImmutablePositionListIndex extends PositionListIndex {
+
+  private static final long serialVersionUID = 1;
+
+  // The fields of the PositionListIndex are not final, so the state is kept in final fields.
+  private final int[] rowIndices;
+  private final int[] clusterOffsets;
+  private final int fixedNumberOfRows;
+  private final int fixedRawKeyError;
+  private final int fixedLargestClusterSize;
+  private final boolean fixedClustersSorted;
+
+  /**
+   * Constructs an {@link ImmutablePositionListIndex} containing a copy of the clusters of the
+   * given {@link PositionListIndex}.
+   * @param positionListIndex the pli to copy
+   */
+  private ImmutablePositionListIndex(PositionListIndex positionListIndex) {
+    super(positionListIndex.getNumberOfRows());
+    final int[] rowIndices =
+      new int[positionListIndex.getRawKeyError() + positionListIndex.size()];
+    final int[] clusterOffsets = new int[positionListIndex.size() + 1];
+    final int[] largestClusterSize = {0};
+    positionListIndex.visitClusters(new ClusterVisitor() {
+      protected int clusterIndex = 0;
+
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        int clusterOffset = clusterOffsets[clusterIndex];
+        System.arraycopy(rows, offset, rowIndices, clusterOffset, length);
+        clusterIndex++;
+        clusterOffsets[clusterIndex] = clusterOffset + length;
+        largestClusterSize[0] = Math.max(largestClusterSize[0], length);
+        return true;
+      }
+    });
+
+    this.rowIndices = rowIndices;
+    this.clusterOffsets = clusterOffsets;
+    this.fixedNumberOfRows = positionListIndex.getNumberOfRows();
+    this.fixedRawKeyError = rowIndices.length - (clusterOffsets.length - 1);
+    this.fixedLargestClusterSize = largestClusterSize[0];
+    this.fixedClustersSorted = positionListIndex.hasSortedClusters();
+    this.rawKeyError = fixedRawKeyError;
+    this.largestClusterSize = fixedLargestClusterSize;
+    this.clustersSorted = fixedClustersSorted;
+  }
+
+  /**
+   * Returns an {@link ImmutablePositionListIndex} with the clusters of the given {@link
+   * PositionListIndex}. Immutable plis are returned as they are, all others are copied.
+   * @param positionListIndex the pli to freeze
+   * @return the immutable pli
+   */
+  public static ImmutablePositionListIndex copyOf(PositionListIndex positionListIndex) {
+    if (positionListIndex instanceof ImmutablePositionListIndex) {
+      return (ImmutablePositionListIndex) positionListIndex;
+    }
+
+    return new ImmutablePositionListIndex(positionListIndex);
+  }
+
+  /**
+   * Returns a read only iterator over the rows of a single cluster.
+   * @param clusterIndex the index of the cluster
+   * @return an iterator over the rows of the cluster
+   */
+  public IntIterator clusterIterator(int clusterIndex) {
+    return IntIterators.wrap(rowIndices, clusterOffsets[clusterIndex],
+      getClusterSize(clusterIndex));
+  }
+
+  /**
+   * @param clusterIndex the index of the cluster
+   * @return the number of rows in the cluster
+   */
+  public int getClusterSize(int clusterIndex) {
+    return clusterOffsets[clusterIndex + 1] - clusterOffsets[clusterIndex];
+  }
+
+  /**
+   * Returns a newly created boxed copy of the clusters. Modifications of the returned clusters are
+   * not reflected in the {@link ImmutablePositionListIndex}.
+   * @return a copy of the non unary clusters
+   */
+  @Override
+  public List<IntArrayList> getClusters() {
+    List<IntArrayList> clusters = new ArrayList<>(size());
+    for (int i = 0; i < size(); i++) {
+      clusters.add(new IntArrayList(rowIndices, clusterOffsets[i], getClusterSize(i)));
+    }
+    return clusters;
+  }
+
+  @Override
+  public boolean visitClusters(ClusterVisitor visitor) {
+    for (int i = 0; i < size(); i++) {
+      if (!visitor.visitCluster(rowIndices, clusterOffsets[i], getClusterSize(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public IntIterator clusterSizeIterator() {
+    return new AbstractIntIterator() {
+      protected int clusterIndex = 0;
+
+      @Override
+      public boolean hasNext() {
+        return clusterIndex < size();
+      }
+
+      @Override
+      public int nextInt() {
+        clusterIndex++;
+        return clusterOffsets[clusterIndex] - clusterOffsets[clusterIndex - 1];
+      }
+    };
+  }
+
+  /**
+   * Immutable plis do not need to be copied, so the pli itself is returned.
+   * @return this pli
+   */
+  @Override
+  public ImmutablePositionListIndex clone() {
+    return this;
+  }
+
+  @Override
+  public int[] asArray(int[] materializedPli) {
+    for (int i = 0; i < size(); i++) {
+      int clusterId = SINGLETON_VALUE + 1 + i;
+      for (int j = clusterOffsets[i]; j < clusterOffsets[i + 1]; j++) {
+        materializedPli[rowIndices[j]] = clusterId;
+      }
+    }
+
+    return materializedPli;
+  }
+
+  @Override
+  public void clearArray(int[] materializedPli) {
+    for (int rowIndex : rowIndices) {
+      materializedPli[rowIndex] = SINGLETON_VALUE;
+    }
+  }
+
+  @Override
+  public int getNumberOfRows() {
+    return fixedNumberOfRows;
+  }
+
+  @Override
+  public int size() {
+    return clusterOffsets.length - 1;
+  }
+
+  @Override
+  public long getMemorySize() {
+    return super.getMemorySize() + getArrayMemorySize(rowIndices.length, 4)
+      + getArrayMemorySize(clusterOffsets.length, 4);
+  }
+
+  @Override
+  public boolean hasSortedClusters() {
+    return fixedClustersSorted;
+  }
+
+  @Override
+  public int getRawKeyError() {
+    return fixedRawKeyError;
+  }
+
+  @Override
+  public int getLargestClusterSize() {
+    return fixedLargestClusterSize;
+  }
+
+  @Override
+  protected int calculateRawKeyError() {
+    return fixedRawKeyError;
+  }
+
+  @Override
+  protected void rowAddedToCluster(int clusterSize) {
+    throw new UnsupportedOperationException("Immutable plis cannot be modified.");
+  }
+
+  @Override
+  protected void rowRemovedFromCluster(int clusterSize) {
+    throw new UnsupportedOperationException("Immutable plis cannot be modified.");
+  }
+
+  @Override
+  protected void setNumberOfRows(int numberOfRows) {
+    throw new UnsupportedOperationException("Immutable plis cannot be modified.");
+  }
+
+  /**
+   * Immutable plis are serialized as {@link CompactPositionListIndex} and frozen again on
+   * deserialization, as the final fields cannot be restored by the serialization of the {@link
+   * PositionListIndex}.
+   * @return the serialized form
+   */
+  private Object writeReplace() throws ObjectStreamException {
+    return new SerializedForm(new CompactPositionListIndex(this));
+  }
+
+  private static class SerializedForm implements Serializable {
+
+    private static final long serialVersionUID = 1;
+    private final CompactPositionListIndex positionListIndex;
+
+    SerializedForm(CompactPositionListIndex positionListIndex) {
+      this.positionListIndex = positionListIndex;
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+      return copyOf(positionListIndex);
+    }
+  }
+
+}
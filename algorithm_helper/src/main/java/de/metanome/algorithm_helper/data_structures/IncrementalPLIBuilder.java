@@ -0,0 +1,292 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+/**
+ * A {@link PLIBuilder} that keeps its value maps after building the {@link PositionListIndex}es, so
+ * batches of appended and deleted rows can be applied to the plis in place. Appending a batch costs
+ * time proportional to the size of the batch and not to the size of the relation. Deleting a row
+ * additionally shifts the following rows of its clusters and costs time proportional to the size
+ * of its clusters. <p/> The plis
+ * returned by {@link #getPLIList()} are the live plis of the builder and reflect every applied
+ * batch. Plis derived from them, e.g. by intersection, are not maintained and have to be
+ * recalculated. Row ids of deleted rows are not reused: a deleted row becomes unique in every
+ * column, so the raw key errors remain exact. {@link RowIdCompaction} can be used to remove the
+ * gaps. <p/> The builder is not thread safe.
+ */
+public class IncrementalPLIBuilder extends PLIBuilder {
+
+  protected static final int NO_POSITION = -1;
+
+  // The cluster of every row per column. Null for deleted rows and ignored null values.
+  protected List<List<IntArrayList>> rowClusters = null;
+  protected List<PositionListIndex> plis = null;
+  // The position of every non unary cluster in the clusters of its pli per column.
+  protected List<Reference2IntOpenHashMap<IntArrayList>> clusterPositions = null;
+  protected BitSet deletedRows = new BitSet();
+
+  public IncrementalPLIBuilder(RelationalInput input) {
+    super(input);
+  }
+
+  public IncrementalPLIBuilder(RelationalInput input, boolean nullEqualsNull) {
+    super(input, nullEqualsNull);
+  }
+
+  /**
+   * Returns the live plis of the builder. The value maps are not purged, so batches can be applied
+   * afterwards.
+   * @return the plis of all columns
+   * @throws PLIBuildingException if the input cannot be iterated
+   */
+  @Override
+  public List<PositionListIndex> getPLIList() throws PLIBuildingException {
+    try {
+      initialize();
+    }
+    catch (InputIterationException e) {
+      throw new PLIBuildingException(
+        "The pli could not be built, because there was an error iterating over the input.", e);
+    }
+    return Collections.unmodifiableList(plis);
+  }
+
+  /**
+   * Builds the sorted distinct values of every column without removing the null values from the
+   * value maps, which are still needed to apply batches.
+   * @return all columns' sorted distinct values
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  @Override
+  public List<TreeSet<String>> getDistinctSortedColumns() throws InputIterationException {
+    initialize();
+
+    List<TreeSet<String>> distinctSortedColumns = new ArrayList<>();
+    for (HashMap<String, IntArrayList> columnMap : columns) {
+      TreeSet<String> distinctSortedColumn = new TreeSet<>();
+      for (Map.Entry<String, IntArrayList> entry : columnMap.entrySet()) {
+        if ((entry.getKey() != null) && !entry.getValue().isEmpty()) {
+          distinctSortedColumn.add(entry.getKey());
+        }
+      }
+      distinctSortedColumns.add(distinctSortedColumn);
+    }
+
+    return distinctSortedColumns;
+  }
+
+  /**
+   * Appends the given rows to the relation. The new rows get consecutive row ids following the
+   * largest row id assigned so far. Only the clusters of the new values are touched. The whole
+   * batch is validated before any row is appended, so a malformed row leaves the plis unchanged.
+   * @param rows the values of the appended rows, one value per column
+   * @return the row id of the first appended row
+   * @throws InputIterationException if the initial input cannot be iterated
+   */
+  public int addRows(List<? extends List<String>> rows) throws InputIterationException {
+    initialize();
+
+    // The first batch of an empty relation defines its columns.
+    int numberOfColumns = columns.isEmpty() && !rows.isEmpty() ? rows.get(0).size()
+      : columns.size();
+    for (List<String> row : rows) {
+      if (row.size() != numberOfColumns) {
+        throw new IllegalArgumentException(
+          "The row has " + row.size() + " values, but the relation has " + numberOfColumns
+          + " columns.");
+      }
+    }
+
+    int firstRowId = numberOfTuples;
+    for (List<String> row : rows) {
+      int columnCount = 0;
+      for (String cellValue : row) {
+        addValue(numberOfTuples, columnCount, cellValue);
+        columnCount++;
+      }
+      numberOfTuples++;
+    }
+
+    for (PositionListIndex pli : plis) {
+      pli.setNumberOfRows(numberOfTuples);
+    }
+
+    return firstRowId;
+  }
+
+  /**
+   * Deletes the given rows from the relation. Every row is removed from its cluster in every
+   * column, clusters that become unary are dropped from the plis.
+   * @param rowIds the ids of the deleted rows
+   * @throws InputIterationException if the initial input cannot be iterated
+   */
+  public void removeRows(IntCollection rowIds) throws InputIterationException {
+    initialize();
+
+    for (IntIterator rowIterator = rowIds.iterator(); rowIterator.hasNext(); ) {
+      int rowId = rowIterator.nextInt();
+      if ((rowId < 0) || (rowId >= numberOfTuples) || deletedRows.get(rowId)) {
+        throw new IllegalArgumentException("The row " + rowId + " does not exist.");
+      }
+      deletedRows.set(rowId);
+
+      for (int columnIndex = 0; columnIndex < plis.size(); columnIndex++) {
+        removeValue(rowId, columnIndex);
+      }
+    }
+  }
+
+  /**
+   * @param rowId the row id to check
+   * @return true iff the row has been deleted
+   */
+  public boolean isDeleted(int rowId) {
+    return deletedRows.get(rowId);
+  }
+
+  /**
+   * @return the number of deleted rows, whose row ids are not reused
+   */
+  public int getNumberOfDeletedRows() {
+    return deletedRows.cardinality();
+  }
+
+  /**
+   * Reads the input and builds the live plis if this has not been done yet.
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  protected void initialize() throws InputIterationException {
+    if (plis != null) {
+      return;
+    }
+    if (columns == null) {
+      columns = new ArrayList<>();
+      rowClusters = new ArrayList<>();
+      calculateUnpurgedPLI();
+    }
+
+    plis = new ArrayList<>();
+    clusterPositions = new ArrayList<>();
+    for (HashMap<String, IntArrayList> columnMap : columns) {
+      List<IntArrayList> clusters = new ArrayList<>();
+      for (IntArrayList cluster : columnMap.values()) {
+        if (cluster.size() > 1) {
+          clusters.add(cluster);
+        }
+      }
+      addPLI(clusters);
+    }
+  }
+
+  /**
+   * Adds the pli of a new column. Rows are added in order, so the clusters are sorted.
+   * @param clusters the non unary clusters of the column
+   */
+  protected void addPLI(List<IntArrayList> clusters) {
+    Reference2IntOpenHashMap<IntArrayList> positions =
+      new Reference2IntOpenHashMap<>(clusters.size());
+    positions.defaultReturnValue(NO_POSITION);
+    for (int position = 0; position < clusters.size(); position++) {
+      positions.put(clusters.get(position), position);
+    }
+
+    PositionListIndex pli = new PositionListIndex(clusters, numberOfTuples, true);
+    // Calculate the raw key error once, so it can be maintained incrementally.
+    pli.getRawKeyError();
+    plis.add(pli);
+    clusterPositions.add(positions);
+  }
+
+  @Override
+  protected void addValue(int rowCount, int columnCount, String attributeCell) {
+    super.addValue(rowCount, columnCount, attributeCell);
+
+    if (rowClusters.size() <= columnCount) {
+      rowClusters.add(new ArrayList<IntArrayList>());
+    }
+    // Skipped null values have no cluster.
+    IntArrayList cluster = columns.get(columnCount).get(attributeCell);
+    rowClusters.get(columnCount).add(cluster);
+
+    if (plis == null) {
+      return;
+    }
+    if (plis.size() <= columnCount) {
+      // The first batch of an empty relation defines its columns.
+      addPLI(new ArrayList<IntArrayList>());
+    }
+    if (cluster == null) {
+      return;
+    }
+
+    PositionListIndex pli = plis.get(columnCount);
+    if (cluster.size() == 2) {
+      clusterPositions.get(columnCount).put(cluster, pli.clusters.size());
+      pli.clusters.add(cluster);
+    }
+    pli.rowAddedToCluster(cluster.size());
+  }
+
+  /**
+   * Removes the row from its cluster in the given column. The row is found by binary search, but
+   * removing it shifts the following rows of the cluster, so the removal costs time proportional to
+   * the size of the cluster. Unary clusters are removed from the pli by moving its last cluster
+   * into their position.
+   * @param rowId       the deleted row
+   * @param columnIndex the column
+   */
+  protected void removeValue(int rowId, int columnIndex) {
+    IntArrayList cluster = rowClusters.get(columnIndex).set(rowId, null);
+    if (cluster == null) {
+      return;
+    }
+
+    // The rows of a cluster are sorted, because they are added in order. Removing the row keeps
+    // them sorted at the cost of shifting the rows behind it.
+    int rowIndex = Arrays.binarySearch(cluster.elements(), 0, cluster.size(), rowId);
+    cluster.removeInt(rowIndex);
+
+    PositionListIndex pli = plis.get(columnIndex);
+    if (cluster.size() == 1) {
+      Reference2IntOpenHashMap<IntArrayList> positions = clusterPositions.get(columnIndex);
+      int position = positions.removeInt(cluster);
+      IntArrayList lastCluster = pli.clusters.remove(pli.clusters.size() - 1);
+      if (lastCluster != cluster) {
+        pli.clusters.set(position, lastCluster);
+        positions.put(lastCluster, position);
+      }
+    }
+    pli.rowRemovedFromCluster(cluster.size());
+  }
+
+}
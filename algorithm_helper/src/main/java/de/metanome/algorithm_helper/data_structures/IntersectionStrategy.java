@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+/**
+ * Computes the intersection of two {@link PositionListIndex}es. Strategies estimate their cost from
+ * cheap statistics of the plis (number of rows, number of clusters, raw key error, largest
+ * cluster), so that the {@link AdaptiveIntersectionStrategy} can choose the cheapest one.
+ * @see PositionListIndex#intersect(PositionListIndex, IntersectionStrategy)
+ */
+public interface IntersectionStrategy {
+
+  /**
+   * Estimates the cost of intersecting the two plis in abstract units of roughly one memory access
+   * each.
+   * @param pli      the first {@link PositionListIndex}
+   * @param otherPLI the second {@link PositionListIndex}
+   * @return the estimated cost or {@link Long#MAX_VALUE} if the strategy cannot intersect the plis
+   */
+  long estimateCost(PositionListIndex pli, PositionListIndex otherPLI);
+
+  /**
+   * Intersects the two plis. Neither of the plis is unique.
+   * @param pli      the first {@link PositionListIndex}
+   * @param otherPLI the second {@link PositionListIndex}
+   * @return the intersected {@link PositionListIndex}
+   */
+  PositionListIndex intersect(PositionListIndex pli, PositionListIndex otherPLI);
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+/**
+ * A {@link PositionListIndex} that records the intersection of several position list indices and
+ * only calculates it when the clusters are needed first. Lazy operands that have not been
+ * materialized are flattened into their operands, so a chain of lazy intersections is
+ * materialized in one pass of {@link PositionListIndex#intersectAll(List)} and the intermediate
+ * intersections are never calculated. The number of rows, uniqueness if one of the operands is
+ * unique, an upper bound of the raw key error and the sketch (see {@link PLISketch}) are answered
+ * without materializing. <p/> The operands are read when the intersection is materialized, so
+ * they should not be modified before.
+ */
+public class LazyPositionListIndex extends PositionListIndex {
+
+  private static final long serialVersionUID = 1;
+  // Null once the intersection has been materialized.
+  protected transient List<PositionListIndex> operands;
+
+  /**
+   * @param operands the {@link PositionListIndex}es to intersect
+   * @throws IllegalArgumentException if there are no operands or their numbers of rows differ
+   */
+  public LazyPositionListIndex(List<? extends PositionListIndex> operands) {
+    super(getNumberOfRows(operands));
+    this.operands = new ArrayList<>(operands.size());
+    for (PositionListIndex operand : operands) {
+      if ((operand instanceof LazyPositionListIndex)
+        && (!((LazyPositionListIndex) operand).isMaterialized()))
+      {
+        this.operands.addAll(((LazyPositionListIndex) operand).operands);
+      }
+      else {
+        this.operands.add(operand);
+      }
+    }
+  }
+
+  protected static int getNumberOfRows(List<? extends PositionListIndex> operands) {
+    if (operands.isEmpty()) {
+      throw new IllegalArgumentException("At least one position list index is needed.");
+    }
+
+    int numberOfRows = operands.get(0).getNumberOfRows();
+    for (PositionListIndex operand : operands) {
+      if (operand.getNumberOfRows() != numberOfRows) {
+        throw new IllegalArgumentException(String.format(
+          "All position list indices need the same number of rows, but found %d and %d.",
+          numberOfRows, operand.getNumberOfRows()));
+      }
+    }
+    return numberOfRows;
+  }
+
+  /**
+   * @return true iff the intersection has been calculated
+   */
+  public boolean isMaterialized() {
+    return operands == null;
+  }
+
+  /**
+   * Calculates the intersection of all operands, if this has not been done yet.
+   */
+  protected void materialize() {
+    if (isMaterialized()) {
+      return;
+    }
+
+    PositionListIndex intersection = intersectAll(operands);
+    this.clusters = intersection.getClusters();
+    this.rawKeyError = intersection.getRawKeyError();
+    this.clustersSorted = intersection.hasSortedClusters();
+    this.operands = null;
+  }
+
+  /**
+   * Returns the smallest raw key error of all operands without materializing the intersection, as
+   * intersecting can only split clusters.
+   * @return an upper bound of the raw key error
+   */
+  @Override
+  public int getRawKeyErrorUpperBound() {
+    if (isMaterialized()) {
+      return getRawKeyError();
+    }
+
+    int upperBound = Integer.MAX_VALUE;
+    for (PositionListIndex operand : operands) {
+      upperBound = Math.min(upperBound, operand.getRawKeyErrorUpperBound());
+    }
+    return upperBound;
+  }
+
+  /**
+   * The intersection is unique without materializing if one of the operands is unique.
+   * @return the column combination represented by the {@link PositionListIndex} is unique.
+   */
+  @Override
+  public boolean isUnique() {
+    if (!isMaterialized()) {
+      for (PositionListIndex operand : operands) {
+        if (operand.isUnique()) {
+          this.clusters = new ArrayList<>();
+          this.rawKeyError = 0;
+          this.clustersSorted = true;
+          this.operands = null;
+          break;
+        }
+      }
+    }
+
+    return super.isUnique();
+  }
+
+  @Override
+  public List<IntArrayList> getClusters() {
+    materialize();
+    return super.getClusters();
+  }
+
+  @Override
+  public boolean visitClusters(ClusterVisitor visitor) {
+    materialize();
+    return super.visitClusters(visitor);
+  }
+
+  @Override
+  public IntIterator clusterSizeIterator() {
+    materialize();
+    return super.clusterSizeIterator();
+  }
+
+  /**
+   * Intersects the sketches of the operands without materializing the intersection.
+   * @return the sketch
+   */
+  @Override
+  public PLISketch getSketch() {
+    if (isMaterialized()) {
+      return super.getSketch();
+    }
+
+    PLISketch sketch = operands.get(0).getSketch();
+    for (int i = 1; i < operands.size(); i++) {
+      sketch = sketch.intersect(operands.get(i).getSketch());
+    }
+    return sketch;
+  }
+
+  @Override
+  public PositionListIndex clone() {
+    materialize();
+    return super.clone();
+  }
+
+  @Override
+  public int[] asArray(int[] materializedPli) {
+    materialize();
+    return super.asArray(materializedPli);
+  }
+
+  @Override
+  public void clearArray(int[] materializedPli) {
+    materialize();
+    super.clearArray(materializedPli);
+  }
+
+  @Override
+  public int size() {
+    materialize();
+    return super.size();
+  }
+
+  @Override
+  public boolean hasSortedClusters() {
+    materialize();
+    return super.hasSortedClusters();
+  }
+
+  @Override
+  public int getRawKeyError() {
+    materialize();
+    return super.getRawKeyError();
+  }
+
+  @Override
+  public int getLargestClusterSize() {
+    materialize();
+    return super.getLargestClusterSize();
+  }
+
+  /**
+   * Unmaterialized intersections only hold references to their operands.
+   * @return the estimated memory size in bytes
+   */
+  @Override
+  public long getMemorySize() {
+    if (isMaterialized()) {
+      return super.getMemorySize();
+    }
+
+    return super.getMemorySize() + OBJECT_MEMORY_SIZE
+      + getArrayMemorySize(operands.size(), REFERENCE_MEMORY_SIZE);
+  }
+
+  /**
+   * Materializes the intersection before serialization, the operands are not serialized.
+   * @return this pli
+   */
+  protected Object writeReplace() throws ObjectStreamException {
+    materialize();
+    return this;
+  }
+
+}
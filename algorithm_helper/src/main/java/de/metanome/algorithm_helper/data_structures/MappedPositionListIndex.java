@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.io.ObjectStreamException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntIterator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+/**
+ * A {@link PositionListIndex} in the layout of the {@link CompactPositionListIndex} that keeps its
+ * clusters in (memory mapped) {@link IntBuffer}s instead of on the heap. Visiting the clusters
+ * copies them one at a time into a heap buffer of the largest cluster's size. Mapped plis are created by the {@link PLIFileReader}. They are serialized as {@link
+ * CompactPositionListIndex}.
+ * @see PLIFileReader
+ */
+public class MappedPositionListIndex extends PositionListIndex {
+
+  private static final long serialVersionUID = 1;
+  protected transient IntBuffer rowIndices;
+  protected transient IntBuffer clusterOffsets;
+
+  /**
+   * @param rowIndices     the rows of all clusters, one cluster after the other
+   * @param clusterOffsets the start index of every cluster in rowIndices followed by the number of
+   *                       rowIndices
+   * @param numberOfRows   the number of rows in the indexed column
+   * @param rawKeyError    the raw key error of the pli
+   */
+  public MappedPositionListIndex(IntBuffer rowIndices, IntBuffer clusterOffsets, int numberOfRows,
+                                 int rawKeyError)
+  {
+    super(numberOfRows);
+    this.rowIndices = rowIndices;
+    this.clusterOffsets = clusterOffsets;
+    this.rawKeyError = rawKeyError;
+  }
+
+  /**
+   * Returns a newly created boxed copy of the clusters.
+   * @return a copy of the non unary clusters
+   */
+  @Override
+  public List<IntArrayList> getClusters() {
+    final List<IntArrayList> clusters = new ArrayList<>(size());
+    visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        clusters.add(new IntArrayList(rows, offset, length));
+        return true;
+      }
+    });
+    return clusters;
+  }
+
+  /**
+   * Copies the clusters one after the other into a shared buffer of the largest cluster's size and
+   * passes them to the visitor.
+   * @param visitor the visitor to pass the clusters to
+   * @return false iff the visitor stopped the visit
+   */
+  @Override
+  public boolean visitClusters(ClusterVisitor visitor) {
+    IntBuffer rows = rowIndices.duplicate();
+    int[] buffer = new int[getLargestClusterSize()];
+    for (int i = 0; i < size(); i++) {
+      int length = clusterOffsets.get(i + 1) - clusterOffsets.get(i);
+      rows.get(buffer, 0, length);
+      if (!visitor.visitCluster(buffer, 0, length)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public IntIterator clusterSizeIterator() {
+    return new AbstractIntIterator() {
+      protected int clusterIndex = 0;
+
+      @Override
+      public boolean hasNext() {
+        return clusterIndex < size();
+      }
+
+      @Override
+      public int nextInt() {
+        clusterIndex++;
+        return clusterOffsets.get(clusterIndex) - clusterOffsets.get(clusterIndex - 1);
+      }
+    };
+  }
+
+  /**
+   * Reads the largest cluster size from the cluster offsets without copying any rows.
+   * @return the number of rows in the largest cluster or 0 if there are no clusters
+   */
+  @Override
+  public int getLargestClusterSize() {
+    if (largestClusterSize == -1) {
+      int maximumClusterSize = 0;
+      for (int i = 0; i < size(); i++) {
+        maximumClusterSize = Math.max(maximumClusterSize,
+          clusterOffsets.get(i + 1) - clusterOffsets.get(i));
+      }
+      largestClusterSize = maximumClusterSize;
+    }
+
+    return largestClusterSize;
+  }
+
+  /**
+   * Creates a complete (deep) copy of the {@link MappedPositionListIndex} on the heap.
+   * @return cloned pli as {@link CompactPositionListIndex}
+   */
+  @Override
+  public PositionListIndex clone() {
+    return new CompactPositionListIndex(this);
+  }
+
+  @Override
+  public int[] asArray(int[] materializedPli) {
+    for (int i = 0; i < size(); i++) {
+      int clusterId = SINGLETON_VALUE + 1 + i;
+      int clusterEnd = clusterOffsets.get(i + 1);
+      for (int j = clusterOffsets.get(i); j < clusterEnd; j++) {
+        materializedPli[rowIndices.get(j)] = clusterId;
+      }
+    }
+
+    return materializedPli;
+  }
+
+  @Override
+  public int size() {
+    return clusterOffsets.limit() - 1;
+  }
+
+  /**
+   * The mapped clusters are not held on the heap, only the buffers referencing them.
+   * @return the estimated memory size in bytes
+   */
+  @Override
+  public long getMemorySize() {
+    return super.getMemorySize() + 2 * OBJECT_MEMORY_SIZE;
+  }
+
+  /**
+   * @return the size of the mapped clusters in bytes
+   */
+  public long getMappedSize() {
+    return 4L * (rowIndices.capacity() + clusterOffsets.capacity());
+  }
+
+  @Override
+  protected int calculateRawKeyError() {
+    return rowIndices.limit() - size();
+  }
+
+  protected Object writeReplace() throws ObjectStreamException {
+    return new CompactPositionListIndex(this);
+  }
+
+}
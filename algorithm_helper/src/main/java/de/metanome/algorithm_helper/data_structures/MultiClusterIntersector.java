@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Intersects any number of {@link PositionListIndex}es by refining the clusters of the first pli
+ * with every further pli. Only the rows that are still part of a non unary cluster are kept in two
+ * flat arrays that are reused across all refinement steps, rows are dropped as soon as they become
+ * singletons. No intermediate position list indices are created.
+ * @see PositionListIndex#intersectAll(List)
+ */
+class MultiClusterIntersector {
+
+  protected int[] rows;
+  protected int[] clusterOffsets;
+  protected int numberOfClusters;
+  protected int[] refinedRows;
+  protected int[] refinedClusterOffsets;
+  protected boolean clustersSorted;
+
+  /**
+   * @param pli the {@link PositionListIndex} whose clusters are refined
+   */
+  MultiClusterIntersector(PositionListIndex pli) {
+    this.rows = new int[pli.getRawKeyError() + pli.size()];
+    // Refining can split clusters, but every non unary cluster holds at least two rows.
+    this.clusterOffsets = new int[rows.length / 2 + 1];
+    this.refinedRows = new int[rows.length];
+    this.refinedClusterOffsets = new int[clusterOffsets.length];
+    // Refining keeps the order of the rows within every cluster.
+    this.clustersSorted = pli.hasSortedClusters();
+
+    pli.visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] clusterRows, int offset, int length) {
+        int start = clusterOffsets[numberOfClusters];
+        System.arraycopy(clusterRows, offset, rows, start, length);
+        clusterOffsets[++numberOfClusters] = start + length;
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Splits every current cluster by the cluster identifiers of the given pli. Rows that end up in
+   * unary clusters are dropped.
+   * @param pli the {@link PositionListIndex} to refine the clusters with
+   */
+  public void refine(PositionListIndex pli) {
+    // Cluster identifiers range from SINGLETON_VALUE + 1 to pli.size().
+    int[] partialClusterSizes = new int[pli.size() + 1];
+    int[] partialClusterPositions = new int[pli.size() + 1];
+    int[] touchedClusterIds = new int[pli.size() + 1];
+
+    int numberOfRefinedClusters = 0;
+    int position = 0;
+    int[] materializedPLI =
+      pli.asArray(PositionListIndex.acquireMaterializationBuffer(pli.getNumberOfRows()));
+    try {
+      for (int cluster = 0; cluster < numberOfClusters; cluster++) {
+        int start = clusterOffsets[cluster];
+        int end = clusterOffsets[cluster + 1];
+
+        // Count the rows per partial cluster.
+        int numberOfTouchedClusterIds = 0;
+        for (int i = start; i < end; i++) {
+          int clusterId = getClusterId(materializedPLI, rows[i]);
+          if (clusterId == PositionListIndex.SINGLETON_VALUE) {
+            continue;
+          }
+          if (partialClusterSizes[clusterId] == 0) {
+            touchedClusterIds[numberOfTouchedClusterIds++] = clusterId;
+          }
+          partialClusterSizes[clusterId]++;
+        }
+
+        // Reserve space for the non unary partial clusters.
+        for (int i = 0; i < numberOfTouchedClusterIds; i++) {
+          int clusterId = touchedClusterIds[i];
+          if (partialClusterSizes[clusterId] > 1) {
+            partialClusterPositions[clusterId] = position;
+            position += partialClusterSizes[clusterId];
+            refinedClusterOffsets[++numberOfRefinedClusters] = position;
+          }
+          else {
+            partialClusterPositions[clusterId] = -1;
+          }
+          partialClusterSizes[clusterId] = 0;
+        }
+
+        // Distribute the rows.
+        for (int i = start; i < end; i++) {
+          int clusterId = getClusterId(materializedPLI, rows[i]);
+          if ((clusterId != PositionListIndex.SINGLETON_VALUE) &&
+            (partialClusterPositions[clusterId] >= 0)) {
+            refinedRows[partialClusterPositions[clusterId]++] = rows[i];
+          }
+        }
+      }
+    }
+    finally {
+      pli.clearArray(materializedPLI);
+      PositionListIndex.releaseMaterializationBuffer(materializedPLI);
+    }
+
+    int[] swap = rows;
+    rows = refinedRows;
+    refinedRows = swap;
+    swap = clusterOffsets;
+    clusterOffsets = refinedClusterOffsets;
+    refinedClusterOffsets = swap;
+    numberOfClusters = numberOfRefinedClusters;
+  }
+
+  protected int getClusterId(int[] materializedPLI, int rowIndex) {
+    if (materializedPLI.length <= rowIndex) {
+      return PositionListIndex.SINGLETON_VALUE;
+    }
+    return materializedPLI[rowIndex];
+  }
+
+  /**
+   * @return true iff all rows have been dropped
+   */
+  public boolean isUnique() {
+    return numberOfClusters == 0;
+  }
+
+  /**
+   * @param numberOfRows the number of rows of the intersected position list indices
+   * @return the intersection as {@link PositionListIndex}
+   */
+  public PositionListIndex getPositionListIndex(int numberOfRows) {
+    List<IntArrayList> clusters = new ArrayList<>(numberOfClusters);
+    for (int cluster = 0; cluster < numberOfClusters; cluster++) {
+      clusters.add(IntArrayList.wrap(
+        Arrays.copyOfRange(rows, clusterOffsets[cluster], clusterOffsets[cluster + 1])));
+    }
+
+    PositionListIndex intersection = new PositionListIndex(clusters, numberOfRows, clustersSorted);
+    intersection.rawKeyError = clusterOffsets[numberOfClusters] - numberOfClusters;
+    return intersection;
+  }
+
+}
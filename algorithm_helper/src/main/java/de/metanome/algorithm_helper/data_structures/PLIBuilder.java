@@ -65,7 +65,8 @@ public class PLIBuilder implements GenericPLIBuilder {
     List<PositionListIndex> result = new ArrayList<>();
     for (List<IntArrayList> rawPLI : rawPLIs) {
       try {
-        result.add(new PositionListIndex(rawPLI, getNumberOfTuples()));
+        // Rows are added in order, so the clusters are sorted.
+        result.add(new PositionListIndex(rawPLI, getNumberOfTuples(), true));
       }
       catch (InputIterationException e) {
         throw new PLIBuildingException(
@@ -0,0 +1,537 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Caches the {@link PositionListIndex}es of column combinations within a memory budget. The plis
+ * of the single columns are always available and do not count against the budget. A missing pli
+ * is calculated from the cached plis of its subsets: the pair of cached subsets covering the
+ * column combination with the smallest sum of raw key errors is intersected. If no pair covers
+ * the column combination, a greedy cover of cached subsets is intersected in one pass (see {@link
+ * PositionListIndex#intersectAll(List)}). Whenever the estimated memory size of the cached plis
+ * (see {@link PositionListIndex#getMemorySize()}) exceeds the budget, plis are evicted according to
+ * the {@link EvictionPolicy}. The memory size of a pli is measured when it is cached. <p/> The
+ * cache is not thread safe.
+ */
+public class PLICache {
+
+  /**
+   * Decides which cached pli is evicted first if the memory budget is exceeded.
+   */
+  public enum EvictionPolicy {
+    /**
+     * Evicts the least recently used pli.
+     */
+    LRU,
+    /**
+     * Evicts the least frequently used pli, plis used equally often in least recently used order.
+     */
+    LFU,
+    /**
+     * Evicts the pli with the smallest number of accesses times recalculation cost per byte.
+     */
+    COST_AWARE
+  }
+
+  protected final List<PositionListIndex> columnPLIs;
+  protected final long maximumMemorySize;
+  protected final EvictionPolicy evictionPolicy;
+  protected final Map<ColumnCombinationBitset, CacheEntry> entries = new HashMap<>();
+  protected final TreeSet<CacheEntry> evictionOrder;
+  protected final SetTrie cachedColumnCombinations;
+  protected long memorySize = 0;
+  protected long accessCounter = 0;
+  protected long numberOfHits = 0;
+  protected long numberOfMisses = 0;
+
+  /**
+   * @param columnPLIs        the plis of all single columns in column order
+   * @param maximumMemorySize the memory budget of the cached column combinations in bytes
+   * @param evictionPolicy    the order in which plis are evicted
+   */
+  public PLICache(List<? extends PositionListIndex> columnPLIs, long maximumMemorySize,
+                  EvictionPolicy evictionPolicy)
+  {
+    this.columnPLIs = new ArrayList<>(columnPLIs);
+    this.maximumMemorySize = maximumMemorySize;
+    this.evictionPolicy = evictionPolicy;
+    this.evictionOrder = new TreeSet<>(new EvictionComparator(evictionPolicy));
+    this.cachedColumnCombinations = new SetTrie(columnPLIs.size());
+  }
+
+  /**
+   * Returns the pli of the column combination. Missing plis are calculated from the cached plis of
+   * the column combination's subsets and cached.
+   * @param columnCombination a non empty column combination
+   * @return the pli of the column combination
+   * @throws ColumnIndexOutOfBoundsException if the column combination contains an unknown column
+   */
+  public PositionListIndex get(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    PositionListIndex pli = getIfPresent(columnCombination);
+    if (pli != null) {
+      return pli;
+    }
+
+    numberOfMisses++;
+    List<PositionListIndex> operands = selectOperands(columnCombination);
+    if (operands.size() == 2) {
+      pli = operands.get(0).intersect(operands.get(1));
+    }
+    else {
+      pli = PositionListIndex.intersectAll(operands);
+    }
+    add(columnCombination, pli, calculateCost(operands));
+
+    return pli;
+  }
+
+  /**
+   * Returns the pli of the column combination if it is cached.
+   * @param columnCombination a non empty column combination
+   * @return the pli of the column combination or null if it is not cached
+   * @throws ColumnIndexOutOfBoundsException if the column combination contains an unknown column
+   */
+  public PositionListIndex getIfPresent(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    checkColumnCombination(columnCombination);
+
+    if (columnCombination.size() == 1) {
+      numberOfHits++;
+      return columnPLIs.get(columnCombination.getSetBits().get(0));
+    }
+
+    CacheEntry entry = entries.get(columnCombination);
+    if (entry == null) {
+      return null;
+    }
+
+    numberOfHits++;
+    evictionOrder.remove(entry);
+    entry.numberOfAccesses++;
+    entry.lastAccess = ++accessCounter;
+    evictionOrder.add(entry);
+    return entry.pli;
+  }
+
+  /**
+   * Caches the given pli of a column combination that has been calculated elsewhere. The
+   * recalculation cost is estimated from the cached subsets the pli would be calculated from, which
+   * requires searching them. Callers that know the intersected plis should use {@link
+   * #put(ColumnCombinationBitset, PositionListIndex, long)} instead.
+   * @param columnCombination a non empty column combination
+   * @param pli               the pli of the column combination
+   * @throws ColumnIndexOutOfBoundsException if the column combination contains an unknown column
+   */
+  public void put(ColumnCombinationBitset columnCombination, PositionListIndex pli)
+    throws ColumnIndexOutOfBoundsException
+  {
+    checkColumnCombination(columnCombination);
+    if (columnCombination.size() == 1) {
+      return;
+    }
+
+    put(columnCombination, pli, estimateCost(selectOperandSubsets(columnCombination)));
+  }
+
+  /**
+   * Caches the given pli of a column combination that has been calculated elsewhere with the given
+   * recalculation cost (see {@link #calculateCost(List)}). The plis of single columns are not
+   * replaced. Lazy intersections are materialized before they are cached, as their memory size
+   * changes on materialization.
+   * @param columnCombination a non empty column combination
+   * @param pli               the pli of the column combination
+   * @param cost              the estimated recalculation cost of the pli
+   * @throws ColumnIndexOutOfBoundsException if the column combination contains an unknown column
+   */
+  public void put(ColumnCombinationBitset columnCombination, PositionListIndex pli, long cost)
+    throws ColumnIndexOutOfBoundsException
+  {
+    checkColumnCombination(columnCombination);
+    if (columnCombination.size() == 1) {
+      return;
+    }
+
+    add(columnCombination, pli, cost);
+  }
+
+  /**
+   * @return the estimated memory size of the cached column combinations' plis in bytes
+   */
+  public long getMemorySize() {
+    return memorySize;
+  }
+
+  /**
+   * @return the memory budget in bytes
+   */
+  public long getMaximumMemorySize() {
+    return maximumMemorySize;
+  }
+
+  /**
+   * @return the number of cached column combinations, single columns are not counted
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of requests answered from the cache
+   */
+  public long getNumberOfHits() {
+    return numberOfHits;
+  }
+
+  /**
+   * @return the number of plis that had to be calculated
+   */
+  public long getNumberOfMisses() {
+    return numberOfMisses;
+  }
+
+  protected void checkColumnCombination(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    if (columnCombination.isEmpty()) {
+      throw new IllegalArgumentException("The column combination must not be empty.");
+    }
+    for (int columnIndex : columnCombination.getSetBits()) {
+      if (columnIndex >= columnPLIs.size()) {
+        throw new ColumnIndexOutOfBoundsException(
+          String.format("Column index %d is larger than the number of columns %d.",
+            columnIndex, columnPLIs.size()));
+      }
+    }
+  }
+
+  /**
+   * Selects the cached plis to calculate the pli of the column combination from. The pair of
+   * cached subsets covering the column combination with the smallest sum of raw key errors is
+   * preferred, as the cost of an intersection grows with the number of rows in non unary clusters.
+   * Otherwise the subset with the smallest raw key error is complemented by the subsets covering
+   * the most missing columns.
+   * @param columnCombination a column combination of at least two columns
+   * @return the plis to intersect
+   */
+  protected List<PositionListIndex> selectOperands(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    List<PositionListIndex> operands = new ArrayList<>();
+    for (ColumnCombinationBitset operandSubset : selectOperandSubsets(columnCombination)) {
+      operands.add(peek(operandSubset));
+    }
+    return operands;
+  }
+
+  /**
+   * Selects the cached subsets to calculate the pli of the column combination from (see {@link
+   * #selectOperands(ColumnCombinationBitset)}). Only the raw key errors of the subsets are compared,
+   * their plis are not accessed.
+   * @param columnCombination a column combination of at least two columns
+   * @return the subsets whose plis are intersected
+   */
+  protected List<ColumnCombinationBitset> selectOperandSubsets(
+    ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    final List<ColumnCombinationBitset> subsets = getCachedSubsets(columnCombination);
+    subsets.addAll(columnCombination.getContainedOneColumnCombinations());
+
+    final int[] rawKeyErrors = new int[subsets.size()];
+    List<Integer> order = new ArrayList<>(subsets.size());
+    for (int i = 0; i < subsets.size(); i++) {
+      rawKeyErrors[i] = peekRawKeyError(subsets.get(i));
+      order.add(i);
+    }
+    Collections.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return Integer.compare(rawKeyErrors[o1], rawKeyErrors[o2]);
+      }
+    });
+
+    // Find the covering pair with the smallest sum of raw key errors.
+    long smallestKeyErrorSum = Long.MAX_VALUE;
+    List<ColumnCombinationBitset> operandSubsets = null;
+    for (int i = 0; i < order.size(); i++) {
+      int rawKeyError = rawKeyErrors[order.get(i)];
+      if (rawKeyError >= smallestKeyErrorSum) {
+        break;
+      }
+      ColumnCombinationBitset missingColumns = columnCombination.minus(subsets.get(order.get(i)));
+      for (int j = i + 1; j < order.size(); j++) {
+        long keyErrorSum = (long) rawKeyError + rawKeyErrors[order.get(j)];
+        if (keyErrorSum >= smallestKeyErrorSum) {
+          break;
+        }
+        if (subsets.get(order.get(j)).containsSubset(missingColumns)) {
+          smallestKeyErrorSum = keyErrorSum;
+          operandSubsets = new ArrayList<>(2);
+          operandSubsets.add(subsets.get(order.get(i)));
+          operandSubsets.add(subsets.get(order.get(j)));
+        }
+      }
+    }
+
+    if (operandSubsets != null) {
+      return operandSubsets;
+    }
+
+    // Greedily cover the column combination.
+    operandSubsets = new ArrayList<>();
+    operandSubsets.add(subsets.get(order.get(0)));
+    ColumnCombinationBitset missingColumns = columnCombination.minus(subsets.get(order.get(0)));
+    while (!missingColumns.isEmpty()) {
+      int bestIndex = -1;
+      int bestNumberOfCoveredColumns = 0;
+      for (int index : order) {
+        int numberOfCoveredColumns = subsets.get(index).intersect(missingColumns).size();
+        if (numberOfCoveredColumns > bestNumberOfCoveredColumns) {
+          bestIndex = index;
+          bestNumberOfCoveredColumns = numberOfCoveredColumns;
+        }
+      }
+      operandSubsets.add(subsets.get(bestIndex));
+      missingColumns = missingColumns.minus(subsets.get(bestIndex));
+    }
+
+    return operandSubsets;
+  }
+
+  /**
+   * @param columnCombination a column combination of at least two columns
+   * @return the cached proper subsets of the column combination with at least two columns
+   */
+  protected List<ColumnCombinationBitset> getCachedSubsets(
+    ColumnCombinationBitset columnCombination)
+  {
+    List<ColumnCombinationBitset> subsets = new ArrayList<>();
+    for (ColumnCombinationBitset subset : cachedColumnCombinations
+      .getExistingSubsets(columnCombination)) {
+      if ((!subset.isEmpty()) && (!subset.equals(columnCombination))) {
+        subsets.add(subset);
+      }
+    }
+    return subsets;
+  }
+
+  /**
+   * Returns the raw key error of a cached pli without counting an access.
+   * @param columnCombination a cached column combination
+   * @return the raw key error of the cached pli
+   */
+  protected int peekRawKeyError(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    return peek(columnCombination).getRawKeyError();
+  }
+
+  /**
+   * Returns the number of rows in non unary clusters of a cached pli without counting an access.
+   * @param columnCombination a cached column combination
+   * @return the number of rows in non unary clusters of the cached pli
+   */
+  protected int peekNumberOfClusterRows(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    return peek(columnCombination).getNumberOfClusterRows();
+  }
+
+  /**
+   * Returns a cached pli without counting an access.
+   * @param columnCombination a cached column combination
+   * @return the cached pli
+   */
+  protected PositionListIndex peek(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    if (columnCombination.size() == 1) {
+      return columnPLIs.get(columnCombination.getSetBits().get(0));
+    }
+    return entries.get(columnCombination).pli;
+  }
+
+  /**
+   * Estimates the cost of recalculating a pli from the given operands by the number of rows in
+   * their non unary clusters.
+   * @param operands the plis to intersect
+   * @return the recalculation cost
+   */
+  public static long calculateCost(List<? extends PositionListIndex> operands) {
+    long cost = 1;
+    for (PositionListIndex operand : operands) {
+      cost += operand.getNumberOfClusterRows();
+    }
+    return cost;
+  }
+
+  /**
+   * Estimates the cost of recalculating a pli from the plis of the given cached subsets like {@link
+   * #calculateCost(List)} without accessing the plis.
+   * @param operandSubsets the cached subsets whose plis are intersected
+   * @return the recalculation cost
+   */
+  protected long estimateCost(List<ColumnCombinationBitset> operandSubsets)
+    throws ColumnIndexOutOfBoundsException
+  {
+    long cost = 1;
+    for (ColumnCombinationBitset operandSubset : operandSubsets) {
+      cost += peekNumberOfClusterRows(operandSubset);
+    }
+    return cost;
+  }
+
+  /**
+   * Caches the pli and evicts other plis until the memory budget is met. Plis larger than the
+   * budget are not cached. Lazy intersections are materialized first, so their accounted memory
+   * size does not change later on.
+   * @param columnCombination a column combination of at least two columns
+   * @param pli               the pli of the column combination
+   * @param cost              the estimated recalculation cost of the pli
+   */
+  protected void add(ColumnCombinationBitset columnCombination, PositionListIndex pli,
+                     long cost) throws ColumnIndexOutOfBoundsException
+  {
+    CacheEntry previousEntry = entries.get(columnCombination);
+    if (previousEntry != null) {
+      remove(previousEntry);
+    }
+
+    if (pli instanceof LazyPositionListIndex) {
+      ((LazyPositionListIndex) pli).materialize();
+    }
+    long pliMemorySize = measureMemorySize(pli);
+    if (pliMemorySize > maximumMemorySize) {
+      return;
+    }
+
+    CacheEntry entry = new CacheEntry(columnCombination, pli, pliMemorySize, cost);
+    entry.lastAccess = ++accessCounter;
+    entries.put(columnCombination, entry);
+    evictionOrder.add(entry);
+    cachedColumnCombinations.add(columnCombination);
+    memorySize += pliMemorySize;
+
+    while (memorySize > maximumMemorySize) {
+      // The new pli is never evicted right away.
+      CacheEntry candidate = evictionOrder.first();
+      if (candidate == entry) {
+        candidate = evictionOrder.higher(entry);
+      }
+      remove(candidate);
+      evict(candidate);
+    }
+  }
+
+  /**
+   * Measures the memory size the pli is charged against the budget with.
+   * @param pli the pli to cache
+   * @return the memory size of the pli in bytes
+   */
+  protected long measureMemorySize(PositionListIndex pli) {
+    return pli.getMemorySize();
+  }
+
+  /**
+   * Removes the entry from the cache.
+   * @param entry the cached entry
+   */
+  protected void remove(CacheEntry entry) {
+    entries.remove(entry.columnCombination);
+    evictionOrder.remove(entry);
+    cachedColumnCombinations.remove(entry.columnCombination);
+    memorySize -= entry.memorySize;
+  }
+
+  /**
+   * Called after an entry has been evicted to meet the memory budget.
+   * @param entry the evicted entry
+   */
+  protected void evict(CacheEntry entry)
+    throws ColumnIndexOutOfBoundsException
+  {
+  }
+
+  /**
+   * A cached pli and the statistics its eviction is based on.
+   */
+  protected static class CacheEntry {
+
+    protected final ColumnCombinationBitset columnCombination;
+    protected final PositionListIndex pli;
+    protected final long memorySize;
+    protected final long cost;
+    protected long numberOfAccesses = 1;
+    protected long lastAccess;
+
+    protected CacheEntry(ColumnCombinationBitset columnCombination, PositionListIndex pli,
+                         long memorySize, long cost)
+    {
+      this.columnCombination = columnCombination;
+      this.pli = pli;
+      this.memorySize = memorySize;
+      this.cost = cost;
+    }
+  }
+
+  /**
+   * Orders the cache entries by eviction priority, the entry to evict first comes first. The last
+   * access is unique and breaks all ties.
+   */
+  protected static class EvictionComparator implements Comparator<CacheEntry> {
+
+    protected final EvictionPolicy evictionPolicy;
+
+    protected EvictionComparator(EvictionPolicy evictionPolicy) {
+      this.evictionPolicy = evictionPolicy;
+    }
+
+    @Override
+    public int compare(CacheEntry o1, CacheEntry o2) {
+      int comparison = 0;
+      switch (evictionPolicy) {
+        case LFU:
+          comparison = Long.compare(o1.numberOfAccesses, o2.numberOfAccesses);
+          break;
+        case COST_AWARE:
+          comparison = Double.compare(
+            o1.numberOfAccesses * (double) o1.cost / o1.memorySize,
+            o2.numberOfAccesses * (double) o2.cost / o2.memorySize);
+          break;
+        default:
+          break;
+      }
+      if (comparison != 0) {
+        return comparison;
+      }
+
+      return Long.compare(o1.lastAccess, o2.lastAccess);
+    }
+  }
+
+}
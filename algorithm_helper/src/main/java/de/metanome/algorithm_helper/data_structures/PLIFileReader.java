@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Reads the {@link PositionListIndex}es of a binary pli file written by the {@link PLIFileWriter}.
+ * Every pli's section is memory mapped lazily when the pli is first requested. The returned {@link
+ * MappedPositionListIndex}es read their clusters directly from the mapping. Mappings stay valid
+ * after the reader is closed.
+ * @see PLIFileWriter
+ */
+public class PLIFileReader implements Closeable {
+
+  protected RandomAccessFile file;
+  protected FileChannel channel;
+  protected long[] sectionOffsets;
+  protected MappedPositionListIndex[] plis;
+
+  /**
+   * Opens the pli file and reads its header.
+   * @param file the pli file
+   * @throws IOException if the file cannot be read or is no pli file of a supported version
+   */
+  public PLIFileReader(File file) throws IOException {
+    this.file = new RandomAccessFile(file, "r");
+    this.channel = this.file.getChannel();
+
+    try {
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+        Math.min(PLIFileWriter.HEADER_SIZE, channel.size()));
+      if ((header.limit() < PLIFileWriter.HEADER_SIZE) ||
+        (header.getInt() != PLIFileWriter.MAGIC_NUMBER)) {
+        throw new IOException(String.format("The file %s is no pli file.", file));
+      }
+      int version = header.getInt();
+      if (version != PLIFileWriter.VERSION) {
+        throw new IOException(
+          String.format("The pli file %s has the unsupported version %d.", file, version));
+      }
+
+      int numberOfPLIs = header.getInt();
+      if ((numberOfPLIs < 0) ||
+        (PLIFileWriter.HEADER_SIZE + 8L * numberOfPLIs > channel.size())) {
+        throw new IOException(
+          String.format("The pli file %s is truncated or corrupt.", file));
+      }
+      ByteBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, PLIFileWriter.HEADER_SIZE,
+        8L * numberOfPLIs);
+      this.sectionOffsets = new long[numberOfPLIs + 1];
+      offsets.asLongBuffer().get(sectionOffsets, 0, numberOfPLIs);
+      this.sectionOffsets[numberOfPLIs] = channel.size();
+      long previousOffset = PLIFileWriter.HEADER_SIZE + 8L * numberOfPLIs;
+      for (long sectionOffset : sectionOffsets) {
+        if ((sectionOffset < previousOffset) ||
+          (sectionOffset > channel.size())) {
+          throw new IOException(
+            String.format("The pli file %s is truncated or corrupt.", file));
+        }
+        previousOffset = sectionOffset;
+      }
+      this.plis = new MappedPositionListIndex[numberOfPLIs];
+    }
+    catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return the number of plis in the file
+   */
+  public int getNumberOfPLIs() {
+    return plis.length;
+  }
+
+  /**
+   * Returns the pli at the given index. The pli's section is mapped on the first request.
+   * @param index the index of the pli in the file
+   * @return the memory mapped pli
+   * @throws IOException if the pli's section cannot be mapped
+   */
+  public synchronized MappedPositionListIndex getPLI(int index) throws IOException {
+    if (plis[index] == null) {
+      plis[index] = mapPLI(index);
+    }
+    return plis[index];
+  }
+
+  /**
+   * Returns a list view of all plis in the file. The plis are mapped lazily on access.
+   * @return the plis in the file
+   */
+  public List<PositionListIndex> getPLIs() {
+    return new AbstractList<PositionListIndex>() {
+      @Override
+      public PositionListIndex get(int index) {
+        try {
+          return getPLI(index);
+        }
+        catch (IOException e) {
+          throw new IllegalStateException(
+            String.format("The pli %d could not be mapped.", index), e);
+        }
+      }
+
+      @Override
+      public int size() {
+        return getNumberOfPLIs();
+      }
+    };
+  }
+
+  /**
+   * Maps the section of the pli at the given index and validates its cluster offsets and rows.
+   * Sections are mapped as a single buffer and must therefore be smaller than 2 GB.
+   * @param index the index of the pli in the file
+   * @return the memory mapped pli
+   * @throws IOException if the section cannot be mapped, is too large or is corrupt
+   */
+  protected MappedPositionListIndex mapPLI(int index) throws IOException {
+    long sectionOffset = sectionOffsets[index];
+    long sectionSize = sectionOffsets[index + 1] - sectionOffset;
+    if (sectionSize > Integer.MAX_VALUE) {
+      throw new IOException(
+        String.format("The section of pli %d exceeds the maximum size of 2 GB.", index));
+    }
+    MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, sectionOffset,
+      sectionSize);
+
+    if (section.limit() < PLIFileWriter.SECTION_HEADER_SIZE) {
+      throw new IOException(String.format("The section of pli %d is truncated.", index));
+    }
+    int numberOfRows = section.getInt();
+    int rawKeyError = section.getInt();
+    int flags = section.getInt();
+    int numberOfClusters = section.getInt();
+    int numberOfRowIndices = section.getInt();
+    if ((numberOfRows < 0) || (numberOfClusters < 0) || (numberOfRowIndices < 0) ||
+      (PLIFileWriter.SECTION_HEADER_SIZE + 4L * (numberOfClusters + 1) + 4L * numberOfRowIndices
+        > section.limit())) {
+      throw new IOException(String.format("The section of pli %d is truncated.", index));
+    }
+
+    IntBuffer clusterOffsets = section.slice().asIntBuffer();
+    clusterOffsets.limit(numberOfClusters + 1);
+    section.position(section.position() + 4 * (numberOfClusters + 1));
+    IntBuffer rowIndices = section.slice().asIntBuffer();
+    rowIndices.limit(numberOfRowIndices);
+    validateSection(index, clusterOffsets, rowIndices, numberOfRows);
+
+    MappedPositionListIndex pli = new MappedPositionListIndex(rowIndices.slice(),
+      clusterOffsets.slice(), numberOfRows, rawKeyError);
+    pli.clustersSorted = (flags & PLIFileWriter.SORTED_CLUSTERS_FLAG) != 0;
+    return pli;
+  }
+
+  /**
+   * Checks that the cluster offsets start at 0, do not decrease and end at the number of row
+   * indices, and that all row indices are smaller than the number of rows.
+   * @param index          the index of the pli in the file
+   * @param clusterOffsets the mapped cluster offsets
+   * @param rowIndices     the mapped row indices
+   * @param numberOfRows   the number of rows in the indexed column
+   * @throws IOException if the section is corrupt
+   */
+  protected void validateSection(int index, IntBuffer clusterOffsets, IntBuffer rowIndices,
+                                 int numberOfRows)
+    throws IOException
+  {
+    int numberOfClusters = clusterOffsets.limit() - 1;
+    if ((clusterOffsets.get(0) != 0) ||
+      (clusterOffsets.get(numberOfClusters) != rowIndices.limit())) {
+      throw new IOException(
+        String.format("The cluster offsets of pli %d are corrupt.", index));
+    }
+    for (int i = 0; i < numberOfClusters; i++) {
+      if (clusterOffsets.get(i) > clusterOffsets.get(i + 1)) {
+        throw new IOException(
+          String.format("The cluster offsets of pli %d are corrupt.", index));
+      }
+    }
+    for (int i = 0; i < rowIndices.limit(); i++) {
+      int row = rowIndices.get(i);
+      if ((row < 0) || (row >= numberOfRows)) {
+        throw new IOException(
+          String.format("The pli %d contains the row %d outside of its %d rows.", index, row,
+            numberOfRows));
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+}
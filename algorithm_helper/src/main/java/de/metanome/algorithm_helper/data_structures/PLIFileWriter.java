@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes {@link PositionListIndex}es to a binary pli file that can be memory mapped by the {@link
+ * PLIFileReader}. All values are written big endian. The file consists of a header and one section
+ * per pli:
+ * <pre>
+ * header:  int magic number, int version, int number of plis, long[number of plis] section offsets
+ * section: int number of rows, int raw key error, int flags, int number of clusters, int number
+ *          of row indices, int[number of clusters + 1] cluster offsets, int[number of row indices]
+ *          row indices
+ * </pre>
+ * The clusters are stored in the layout of the {@link CompactPositionListIndex}. The flags mark
+ * plis with sorted clusters (see {@link PositionListIndex#hasSortedClusters()}). A file holds a
+ * single header, so the plis are written by a single call to {@link #write(List)}.
+ */
+public class PLIFileWriter implements Closeable {
+
+  public static final int MAGIC_NUMBER = 0x504C4946;
+  public static final int VERSION = 2;
+  public static final int SORTED_CLUSTERS_FLAG = 1;
+  protected static final int HEADER_SIZE = 3 * 4;
+  protected static final int SECTION_HEADER_SIZE = 5 * 4;
+
+  protected DataOutputStream output;
+  protected boolean written = false;
+
+  public PLIFileWriter(File file) throws IOException {
+    this.output =
+      new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+  }
+
+  /**
+   * Writes all plis to the file.
+   * @param plis the plis to write
+   * @throws IOException if the file cannot be written
+   * @throws IllegalStateException if the plis have already been written
+   */
+  public void write(List<? extends PositionListIndex> plis) throws IOException {
+    if (written) {
+      throw new IllegalStateException("The plis have already been written to the file.");
+    }
+    written = true;
+
+    output.writeInt(MAGIC_NUMBER);
+    output.writeInt(VERSION);
+    output.writeInt(plis.size());
+
+    long sectionOffset = HEADER_SIZE + 8L * plis.size();
+    for (PositionListIndex pli : plis) {
+      output.writeLong(sectionOffset);
+      sectionOffset += getSectionSize(pli);
+    }
+
+    for (PositionListIndex pli : plis) {
+      writeSection(pli);
+    }
+    output.flush();
+  }
+
+  protected long getSectionSize(PositionListIndex pli) {
+    long numberOfRowIndices = pli.getRawKeyError() + pli.size();
+    return SECTION_HEADER_SIZE + 4L * (pli.size() + 1) + 4L * numberOfRowIndices;
+  }
+
+  protected void writeSection(PositionListIndex pli) throws IOException {
+    output.writeInt(pli.getNumberOfRows());
+    output.writeInt(pli.getRawKeyError());
+    output.writeInt(pli.hasSortedClusters() ? SORTED_CLUSTERS_FLAG : 0);
+    output.writeInt(pli.size());
+    output.writeInt(pli.getRawKeyError() + pli.size());
+
+    final int[] clusterOffsets = new int[pli.size() + 1];
+    pli.visitClusters(new ClusterVisitor() {
+      protected int clusterIndex = 0;
+
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        clusterIndex++;
+        clusterOffsets[clusterIndex] = clusterOffsets[clusterIndex - 1] + length;
+        return true;
+      }
+    });
+    for (int clusterOffset : clusterOffsets) {
+      output.writeInt(clusterOffset);
+    }
+
+    final IOException[] exception = new IOException[1];
+    pli.visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        try {
+          for (int i = offset; i < offset + length; i++) {
+            output.writeInt(rows[i]);
+          }
+        }
+        catch (IOException e) {
+          exception[0] = e;
+          return false;
+        }
+        return true;
+      }
+    });
+    if (exception[0] != null) {
+      throw exception[0];
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    output.close();
+  }
+
+}
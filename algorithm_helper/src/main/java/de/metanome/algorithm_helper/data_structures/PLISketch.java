@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * A small sketch of a {@link PositionListIndex} that estimates how close a column combination is
+ * to unique without intersecting the plis. The sketch stores the cluster of a fixed sample of rows.
+ * All sketches of the same sample size over the same number of rows share their sample, so the
+ * sketch of an intersection is calculated from the operands' sketches in time linear in the sample
+ * size (see {@link #intersect(PLISketch)}). <p/> The number of distinct values is estimated from
+ * the frequencies of the clusters in the sample (see {@link #estimateNumberOfDistinctValues()}).
+ * Sampled rows that share a cluster prove that the column combination is not unique, the raw key
+ * error of the sample is a lower bound of the raw key error.
+ */
+public class PLISketch {
+
+  public static final int DEFAULT_SAMPLE_SIZE = 512;
+  protected static final long SAMPLE_SEED = 0x504C4953L;
+
+  protected final int numberOfRows;
+  // The cluster of every sampled row, SINGLETON_VALUE for rows in unary clusters.
+  protected final int[] sampleClusters;
+
+  protected PLISketch(int numberOfRows, int[] sampleClusters) {
+    this.numberOfRows = numberOfRows;
+    this.sampleClusters = sampleClusters;
+  }
+
+  /**
+   * Creates the sketch of the pli in a single pass over the rows of its non unary clusters.
+   * @param pli        the pli to sketch
+   * @param sampleSize the number of sampled rows, all rows are sampled in smaller relations
+   * @return the sketch of the pli
+   */
+  public static PLISketch create(PositionListIndex pli, int sampleSize) {
+    int[] sampleRows = sampleRows(pli.getNumberOfRows(), sampleSize);
+    final Int2IntOpenHashMap samplePositions = new Int2IntOpenHashMap(sampleRows.length);
+    samplePositions.defaultReturnValue(-1);
+    for (int i = 0; i < sampleRows.length; i++) {
+      samplePositions.put(sampleRows[i], i);
+    }
+
+    final int[] sampleClusters = new int[sampleRows.length];
+    pli.visitClusters(new ClusterVisitor() {
+      protected int clusterId = PositionListIndex.SINGLETON_VALUE + 1;
+
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+          int samplePosition = samplePositions.get(rows[i]);
+          if (samplePosition != -1) {
+            sampleClusters[samplePosition] = clusterId;
+          }
+        }
+        clusterId++;
+        return true;
+      }
+    });
+
+    return new PLISketch(pli.getNumberOfRows(), sampleClusters);
+  }
+
+  /**
+   * Draws the sample shared by all sketches of the given size over the given number of rows.
+   * @param numberOfRows the number of rows in the relation
+   * @param sampleSize   the number of rows to sample
+   * @return the sorted sampled row ids
+   */
+  protected static int[] sampleRows(int numberOfRows, int sampleSize) {
+    if (sampleSize >= numberOfRows) {
+      int[] sampleRows = new int[numberOfRows];
+      for (int i = 0; i < numberOfRows; i++) {
+        sampleRows[i] = i;
+      }
+      return sampleRows;
+    }
+
+    // Floyd's algorithm draws distinct rows with a fixed seed.
+    Random random = new Random(SAMPLE_SEED);
+    IntOpenHashSet sampledRows = new IntOpenHashSet(sampleSize);
+    for (int candidate = numberOfRows - sampleSize; candidate < numberOfRows; candidate++) {
+      int row = random.nextInt(candidate + 1);
+      if (!sampledRows.add(row)) {
+        sampledRows.add(candidate);
+      }
+    }
+
+    int[] sampleRows = sampledRows.toIntArray();
+    Arrays.sort(sampleRows);
+    return sampleRows;
+  }
+
+  /**
+   * Calculates the sketch of the intersection of the sketched plis. Sampled rows are in the same
+   * cluster of the intersection iff they share their clusters in both plis.
+   * @param other the sketch of the other pli
+   * @return the sketch of the intersection
+   * @throws IllegalArgumentException if the sketches are based on different samples
+   */
+  public PLISketch intersect(PLISketch other) {
+    if ((numberOfRows != other.numberOfRows)
+      || (sampleClusters.length != other.sampleClusters.length))
+    {
+      throw new IllegalArgumentException("The sketches are based on different samples.");
+    }
+
+    Long2IntOpenHashMap intersectedClusterIds = new Long2IntOpenHashMap();
+    int[] intersectedClusters = new int[sampleClusters.length];
+    for (int i = 0; i < sampleClusters.length; i++) {
+      if ((sampleClusters[i] == PositionListIndex.SINGLETON_VALUE)
+        || (other.sampleClusters[i] == PositionListIndex.SINGLETON_VALUE))
+      {
+        continue;
+      }
+
+      long clusterPair =
+        (((long) sampleClusters[i]) << 32) | (other.sampleClusters[i] & 0xFFFFFFFFL);
+      int clusterId = intersectedClusterIds.get(clusterPair);
+      if (clusterId == 0) {
+        clusterId = intersectedClusterIds.size() + 1;
+        intersectedClusterIds.put(clusterPair, clusterId);
+      }
+      intersectedClusters[i] = clusterId;
+    }
+
+    return new PLISketch(numberOfRows, intersectedClusters);
+  }
+
+  /**
+   * @return the number of rows in the sketched relation
+   */
+  public int getNumberOfRows() {
+    return numberOfRows;
+  }
+
+  /**
+   * @return the number of sampled rows
+   */
+  public int getSampleSize() {
+    return sampleClusters.length;
+  }
+
+  /**
+   * Estimates the number of distinct values. Sampled rows in unary clusters are known to be unique
+   * and are scaled up to the relation. The number of the other values is estimated with the bias
+   * corrected Chao1 estimator from the clusters sampled once and twice. The estimate is exact if
+   * all rows are sampled.
+   * @return the estimated number of distinct values
+   */
+  public int estimateNumberOfDistinctValues() {
+    int singletons = 0;
+    Int2IntOpenHashMap clusterFrequencies = new Int2IntOpenHashMap();
+    for (int cluster : sampleClusters) {
+      if (cluster == PositionListIndex.SINGLETON_VALUE) {
+        singletons++;
+      }
+      else {
+        clusterFrequencies.addTo(cluster, 1);
+      }
+    }
+
+    int distinctInSample = singletons + clusterFrequencies.size();
+    if (sampleClusters.length == numberOfRows) {
+      return distinctInSample;
+    }
+
+    long sampledOnce = 0;
+    long sampledTwice = 0;
+    for (int frequency : clusterFrequencies.values()) {
+      if (frequency == 1) {
+        sampledOnce++;
+      }
+      else if (frequency == 2) {
+        sampledTwice++;
+      }
+    }
+
+    double scale = (double) numberOfRows / sampleClusters.length;
+    double estimate = scale * singletons + clusterFrequencies.size()
+      + sampledOnce * (sampledOnce - 1) / (2.0 * (sampledTwice + 1));
+    return (int) Math.max(distinctInSample, Math.min(numberOfRows, Math.round(estimate)));
+  }
+
+  /**
+   * @return the estimated number of rows to remove in order to make the column combination unique
+   */
+  public int estimateRawKeyError() {
+    return numberOfRows - estimateNumberOfDistinctValues();
+  }
+
+  /**
+   * Returns the raw key error of the sample, which the raw key error of the relation can not
+   * undercut.
+   * @return a lower bound of the raw key error
+   */
+  public int getRawKeyErrorLowerBound() {
+    int clusterRows = 0;
+    Int2IntOpenHashMap clusterFrequencies = new Int2IntOpenHashMap();
+    for (int cluster : sampleClusters) {
+      if (cluster != PositionListIndex.SINGLETON_VALUE) {
+        clusterRows++;
+        clusterFrequencies.addTo(cluster, 1);
+      }
+    }
+
+    return clusterRows - clusterFrequencies.size();
+  }
+
+  /**
+   * @return true iff two sampled rows share a cluster, so the column combination is not unique
+   */
+  public boolean isKnownNonUnique() {
+    return getRawKeyErrorLowerBound() > 0;
+  }
+
+  @Override
+  public String toString() {
+    return "PLISketch{" +
+      "numberOfRows=" + numberOfRows +
+      ", sampleSize=" + getSampleSize() +
+      ", estimatedRawKeyError=" + estimateRawKeyError() +
+      '}';
+  }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+/**
+ * Immutable statistics of a {@link PositionListIndex} for pruning heuristics and cost models. All
+ * statistics are calculated in a single pass over the cluster sizes and queried in constant time.
+ * Unary clusters are not stored in plis, every row outside the stored clusters is a singleton.
+ */
+public class PLIStatistics {
+
+  protected final int numberOfRows;
+  protected final int numberOfClusters;
+  protected final int numberOfClusterRows;
+  protected final int largestClusterSize;
+  protected final double entropy;
+
+  public PLIStatistics(int numberOfRows, int numberOfClusters, int numberOfClusterRows,
+                       int largestClusterSize, double entropy)
+  {
+    this.numberOfRows = numberOfRows;
+    this.numberOfClusters = numberOfClusters;
+    this.numberOfClusterRows = numberOfClusterRows;
+    this.largestClusterSize = largestClusterSize;
+    this.entropy = entropy;
+  }
+
+  /**
+   * Calculates the statistics from the sizes of the non unary clusters.
+   * @param numberOfRows the number of rows in the indexed column
+   * @param clusterSizes the sizes of the non unary clusters
+   * @return the statistics
+   */
+  public static PLIStatistics calculate(int numberOfRows, IntIterator clusterSizes) {
+    int numberOfClusters = 0;
+    int numberOfClusterRows = 0;
+    int largestClusterSize = 0;
+    // Unary clusters do not contribute, as 1 * log(1) = 0.
+    double sumWeightedLogarithms = 0;
+    while (clusterSizes.hasNext()) {
+      int clusterSize = clusterSizes.nextInt();
+      numberOfClusters++;
+      numberOfClusterRows += clusterSize;
+      largestClusterSize = Math.max(largestClusterSize, clusterSize);
+      sumWeightedLogarithms += clusterSize * log2(clusterSize);
+    }
+
+    double entropy = 0;
+    if (numberOfRows > 0) {
+      // H = -sum(c/n * log(c/n)) = log(n) - sum(c * log(c)) / n
+      entropy = Math.max(0, log2(numberOfRows) - sumWeightedLogarithms / numberOfRows);
+    }
+
+    return new PLIStatistics(numberOfRows, numberOfClusters, numberOfClusterRows,
+      largestClusterSize, entropy);
+  }
+
+  protected static double log2(double value) {
+    return Math.log(value) / Math.log(2);
+  }
+
+  /**
+   * @return the number of rows in the indexed column
+   */
+  public int getNumberOfRows() {
+    return numberOfRows;
+  }
+
+  /**
+   * @return the number of non unary clusters
+   */
+  public int getNumberOfClusters() {
+    return numberOfClusters;
+  }
+
+  /**
+   * @return the number of rows in non unary clusters
+   */
+  public int getNumberOfClusterRows() {
+    return numberOfClusterRows;
+  }
+
+  /**
+   * @return the number of rows to remove in order to make the column unique
+   */
+  public int getRawKeyError() {
+    return numberOfClusterRows - numberOfClusters;
+  }
+
+  /**
+   * @return the number of distinct values in the indexed column
+   */
+  public int getNumberOfDistinctValues() {
+    return numberOfRows - getRawKeyError();
+  }
+
+  /**
+   * @return the number of rows with a value that occurs only once
+   */
+  public int getNumberOfSingletons() {
+    return numberOfRows - numberOfClusterRows;
+  }
+
+  /**
+   * @return the number of rows in the largest cluster or 0 if there are no non unary clusters
+   */
+  public int getLargestClusterSize() {
+    return largestClusterSize;
+  }
+
+  /**
+   * @return the entropy of the value distribution in bits
+   */
+  public double getEntropy() {
+    return entropy;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = numberOfRows;
+    result = 31 * result + numberOfClusters;
+    result = 31 * result + numberOfClusterRows;
+    result = 31 * result + largestClusterSize;
+    long entropyBits = Double.doubleToLongBits(entropy);
+    result = 31 * result + (int) (entropyBits ^ (entropyBits >>> 32));
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    PLIStatistics other = (PLIStatistics) obj;
+    if (numberOfRows != other.numberOfRows) {
+      return false;
+    }
+    if (numberOfClusters != other.numberOfClusters) {
+      return false;
+    }
+    if (numberOfClusterRows != other.numberOfClusterRows) {
+      return false;
+    }
+    if (largestClusterSize != other.largestClusterSize) {
+      return false;
+    }
+    return Double.compare(entropy, other.entropy) == 0;
+  }
+
+  @Override
+  public String toString() {
+    return "PLIStatistics{" +
+      "numberOfRows=" + numberOfRows +
+      ", numberOfDistinctValues=" + getNumberOfDistinctValues() +
+      ", numberOfSingletons=" + getNumberOfSingletons() +
+      ", largestClusterSize=" + largestClusterSize +
+      ", entropy=" + entropy +
+      '}';
+  }
+
+}
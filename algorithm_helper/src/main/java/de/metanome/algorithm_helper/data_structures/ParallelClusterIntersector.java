@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Probes a range of clusters against a shared materialized {@link PositionListIndex} on a fork
+ * join pool. Ranges with more than the threshold number of rows are split in halves, smaller
+ * ranges are probed by a {@link ClusterIntersector}. The results of both halves are concatenated in
+ * order, so the clusters appear in the same order as in the serial intersection. <p/> The scratch
+ * arrays of the intersectors are sized by the materialized pli's number of clusters. They are
+ * shared by all tasks of an intersection through a pool, so at most one set of scratch arrays is
+ * allocated per concurrently probing worker rather than one per range.
+ * @see PositionListIndex#intersect(PositionListIndex, java.util.concurrent.ForkJoinPool, int)
+ */
+class ParallelClusterIntersector extends RecursiveTask<ClusterIntersector> {
+
+  private static final long serialVersionUID = 1;
+
+  protected final int[] materializedPLI;
+  protected final int numberOfClusters;
+  protected final ClusterSlices probingClusters;
+  protected final long[] cumulativeLengths;
+  protected final int from;
+  protected final int to;
+  protected final int parallelThreshold;
+  protected final Queue<ClusterIntersector> scratchIntersectors;
+
+  /**
+   * @param materializedPLI   the materialized pli (see {@link PositionListIndex#asArray()})
+   * @param numberOfClusters  the number of clusters in the materialized pli
+   * @param probingClusters   the probing clusters
+   * @param cumulativeLengths the number of rows in all probing clusters before each cluster
+   * @param from              the first probing cluster of this task (inclusive)
+   * @param to                the last probing cluster of this task (exclusive)
+   * @param parallelThreshold the number of rows below which the range is probed serially
+   */
+  ParallelClusterIntersector(int[] materializedPLI, int numberOfClusters,
+                             ClusterSlices probingClusters, long[] cumulativeLengths, int from,
+                             int to, int parallelThreshold)
+  {
+    this(materializedPLI, numberOfClusters, probingClusters, cumulativeLengths, from, to,
+      parallelThreshold, new ConcurrentLinkedQueue<ClusterIntersector>());
+  }
+
+  protected ParallelClusterIntersector(int[] materializedPLI, int numberOfClusters,
+                                       ClusterSlices probingClusters, long[] cumulativeLengths,
+                                       int from, int to, int parallelThreshold,
+                                       Queue<ClusterIntersector> scratchIntersectors)
+  {
+    this.materializedPLI = materializedPLI;
+    this.numberOfClusters = numberOfClusters;
+    this.probingClusters = probingClusters;
+    this.cumulativeLengths = cumulativeLengths;
+    this.from = from;
+    this.to = to;
+    this.parallelThreshold = parallelThreshold;
+    this.scratchIntersectors = scratchIntersectors;
+  }
+
+  @Override
+  protected ClusterIntersector compute() {
+    if ((to - from > 1) && (cumulativeLengths[to] - cumulativeLengths[from] > parallelThreshold)) {
+      int middle = (from + to) >>> 1;
+      ParallelClusterIntersector left = createSubtask(from, middle);
+      ParallelClusterIntersector right = createSubtask(middle, to);
+      right.fork();
+      ClusterIntersector leftResult = left.compute();
+      ClusterIntersector rightResult = right.join();
+
+      leftResult.clusters.addAll(rightResult.clusters);
+      leftResult.rawKeyError += rightResult.rawKeyError;
+      return leftResult;
+    }
+
+    ClusterIntersector scratchIntersector = scratchIntersectors.poll();
+    if (scratchIntersector == null) {
+      scratchIntersector =
+        new ClusterIntersector(materializedPLI, numberOfClusters, Integer.MAX_VALUE);
+    }
+
+    ClusterIntersector intersector = new ClusterIntersector(scratchIntersector, Integer.MAX_VALUE);
+    for (int i = from; i < to; i++) {
+      intersector.visitCluster(probingClusters.rows[i], probingClusters.offsets[i],
+        probingClusters.lengths[i]);
+    }
+    // Keep the probed cluster identifiers buffer if it has grown.
+    scratchIntersector.probedClusterIds = intersector.probedClusterIds;
+    scratchIntersectors.offer(scratchIntersector);
+    return intersector;
+  }
+
+  protected ParallelClusterIntersector createSubtask(int from, int to) {
+    return new ParallelClusterIntersector(materializedPLI, numberOfClusters, probingClusters,
+      cumulativeLengths, from, to, parallelThreshold, scratchIntersectors);
+  }
+
+}
@@ -16,20 +16,27 @@
 
 package de.metanome.algorithm_helper.data_structures;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import it.unimi.dsi.fastutil.ints.AbstractIntIterator;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntList;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.ints.IntSet;
 
 /**
  * Position list indices (or stripped partitions) are an index structure that stores the positions
@@ -40,16 +47,59 @@ import it.unimi.dsi.fastutil.ints.IntSet;
 public class PositionListIndex implements Serializable {
 
   public static final transient int SINGLETON_VALUE = 0;
-  private static final long serialVersionUID = 2;
+  public static final transient int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+  public static final transient IntersectionStrategy DEFAULT_INTERSECTION_STRATEGY =
+    new AdaptiveIntersectionStrategy();
+  private static final long serialVersionUID = 3;
+  private static final transient ThreadLocal<int[]> MATERIALIZATION_BUFFER =
+    new ThreadLocal<>();
+  private static final transient int SERIALIZATION_BUFFER_SIZE = 8192;
+  private static final transient byte PLAIN_ENCODING = 0;
+  private static final transient byte VARINT_ENCODING = 1;
+  // Estimated heap sizes in bytes used by getMemorySize.
+  protected static final transient long OBJECT_MEMORY_SIZE = 48;
+  protected static final transient long ARRAY_MEMORY_SIZE = 16;
+  protected static final transient long REFERENCE_MEMORY_SIZE = 8;
   protected List<IntArrayList> clusters;
   protected int numberOfRows;
   protected int rawKeyError = -1;
+  protected int largestClusterSize = -1;
+  protected boolean clustersSorted = false;
+  private transient CanonicalClusters canonicalClusters;
+  private transient PLIStatistics statistics;
+  private transient PLISketch sketch;
 
   public PositionListIndex(List<IntArrayList> clusters, int numberOfRows) {
     this.clusters = clusters;
     this.numberOfRows = numberOfRows;
   }
 
+  /**
+   * Constructs a {@link PositionListIndex} whose clusters are known to be sorted by row, e.g.
+   * because the rows were added in order (see {@link PLIBuilder}). Sorted clusters enable the merge
+   * based intersection.
+   * @param clusters       the non unary clusters
+   * @param numberOfRows   the number of rows in the indexed column
+   * @param clustersSorted whether the rows of every cluster are in ascending order
+   */
+  public PositionListIndex(List<IntArrayList> clusters, int numberOfRows,
+                           boolean clustersSorted)
+  {
+    this(clusters, numberOfRows);
+    this.clustersSorted = clustersSorted;
+  }
+
+  /**
+   * Constructs a {@link PositionListIndex} without boxed clusters. Subclasses using this
+   * constructor store the clusters in their own representation and need to override {@link
+   * #visitClusters(ClusterVisitor)}, {@link #size()}, {@link #getClusters()} and {@link #clone()}.
+   * @param numberOfRows the number of rows in the indexed column
+   */
+  protected PositionListIndex(int numberOfRows) {
+    this.clusters = null;
+    this.numberOfRows = numberOfRows;
+  }
+
   /**
    * Constructs an empty {@link PositionListIndex}.
    */
@@ -60,34 +110,473 @@ public class PositionListIndex implements Serializable {
 
   /**
    * Intersects the given PositionListIndex with this PositionListIndex returning a new
-   * PositionListIndex. For the intersection the smaller PositionListIndex is converted into a
-   * HashMap.
+   * PositionListIndex. The {@link #DEFAULT_INTERSECTION_STRATEGY} chooses the cheapest way to
+   * intersect the two plis.
    * @param otherPLI the other {@link PositionListIndex} to intersect
    * @return the intersected {@link PositionListIndex}
    */
   public PositionListIndex intersect(PositionListIndex otherPLI) {
+    return intersect(otherPLI, DEFAULT_INTERSECTION_STRATEGY);
+  }
+
+  /**
+   * Intersects the given PositionListIndex with this PositionListIndex using the given strategy.
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @param strategy the {@link IntersectionStrategy} to intersect the plis with
+   * @return the intersected {@link PositionListIndex}
+   */
+  public PositionListIndex intersect(PositionListIndex otherPLI, IntersectionStrategy strategy) {
     // TODO(zwiener): Check that aborting operation on unique plis actually lowers execution times.
     if ((this.isUnique()) || (otherPLI.isUnique())) {
       return new PositionListIndex(new ArrayList<IntArrayList>(), getNumberOfRows());
     }
 
-    // In most cases probing is harder than materialization. The smaller pli should be iterated for probing.
+    return strategy.intersect(this, otherPLI);
+  }
+
+  /**
+   * Intersects the given PositionListIndex with this PositionListIndex, but aborts the intersection
+   * as soon as the raw key error of the intersection is certain to exceed the given maximum. As the
+   * raw key error of the intersection grows with every probed cluster, this is the case as soon as
+   * the partial raw key error exceeds the maximum. If one of the plis is unique the intersection is
+   * certain to be unique and returned immediately.
+   * @param otherPLI           the other {@link PositionListIndex} to intersect
+   * @param maximumRawKeyError the maximum raw key error of the intersection
+   * @return the intersected {@link PositionListIndex} or null if its raw key error exceeds the
+   * maximum
+   */
+  public PositionListIndex intersect(PositionListIndex otherPLI, int maximumRawKeyError) {
+    if ((this.isUnique()) || (otherPLI.isUnique())) {
+      return new PositionListIndex(new ArrayList<IntArrayList>(), getNumberOfRows());
+    }
+
+    if (this.getRawKeyError() > otherPLI.getRawKeyError()) {
+      return calculateIntersection(otherPLI, maximumRawKeyError);
+    }
+    else {
+      return otherPLI.calculateIntersection(this, maximumRawKeyError);
+    }
+  }
+
+  /**
+   * Intersects the given PositionListIndex with this PositionListIndex on the given fork join pool
+   * using the {@link #DEFAULT_PARALLEL_THRESHOLD}.
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @param pool     the fork join pool to probe the clusters on
+   * @return the intersected {@link PositionListIndex}
+   * @see #intersect(PositionListIndex, ForkJoinPool, int)
+   */
+  public PositionListIndex intersect(PositionListIndex otherPLI, ForkJoinPool pool) {
+    return intersect(otherPLI, pool, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Intersects the given PositionListIndex with this PositionListIndex on the given fork join pool.
+   * The clusters of the probing pli are split into ranges of at most parallelThreshold rows that
+   * are probed concurrently against the shared materialization of the other pli (see {@link
+   * ParallelClusterIntersector}). If the probing pli has fewer rows than the threshold the serial
+   * {@link #calculateIntersection(PositionListIndex)} is used. The result is identical to the
+   * serial array probing intersection, including the order of the clusters.
+   * @param otherPLI          the other {@link PositionListIndex} to intersect
+   * @param pool              the fork join pool to probe the clusters on
+   * @param parallelThreshold the number of probed rows below which the intersection runs serially
+   * @return the intersected {@link PositionListIndex}
+   */
+  public PositionListIndex intersect(PositionListIndex otherPLI, ForkJoinPool pool,
+                                     int parallelThreshold)
+  {
+    if ((this.isUnique()) || (otherPLI.isUnique())) {
+      return new PositionListIndex(new ArrayList<IntArrayList>(), getNumberOfRows());
+    }
+
+    // The same probing order as in intersect is used.
+    PositionListIndex materializedPLI = this;
+    PositionListIndex probingPLI = otherPLI;
+    if (this.getRawKeyError() <= otherPLI.getRawKeyError()) {
+      materializedPLI = otherPLI;
+      probingPLI = this;
+    }
+    if (probingPLI.getNumberOfClusterRows() < parallelThreshold) {
+      return materializedPLI.calculateIntersection(probingPLI);
+    }
+
+    return materializedPLI.calculateParallelIntersection(probingPLI, pool, parallelThreshold);
+  }
+
+  protected PositionListIndex calculateParallelIntersection(PositionListIndex otherPLI,
+                                                            ForkJoinPool pool,
+                                                            int parallelThreshold)
+  {
+    ClusterSlices probingClusters = new ClusterSlices(otherPLI);
+    long[] cumulativeLengths = new long[probingClusters.size() + 1];
+    for (int i = 0; i < probingClusters.size(); i++) {
+      cumulativeLengths[i + 1] = cumulativeLengths[i] + probingClusters.lengths[i];
+    }
+
+    ClusterIntersector intersector = pool.invoke(new ParallelClusterIntersector(this.asArray(),
+      size(), probingClusters, cumulativeLengths, 0, probingClusters.size(), parallelThreshold));
+
+    PositionListIndex intersection = new PositionListIndex(intersector.getClusters(),
+      getNumberOfRows(), otherPLI.hasSortedClusters());
+    intersection.rawKeyError = intersector.getRawKeyError();
+    return intersection;
+  }
+
+  /**
+   * Intersects this PositionListIndex with each of the given PositionListIndexes. This pli is
+   * materialized only once and the clusters of all other plis are probed against the shared
+   * materialization. This is the typical access pattern when all direct supersets of a column
+   * combination are generated.
+   * @param otherPLIs the other {@link PositionListIndex}es to intersect
+   * @return one intersected {@link PositionListIndex} per given pli in the same order
+   */
+  public List<PositionListIndex> intersect(List<? extends PositionListIndex> otherPLIs) {
+    List<PositionListIndex> intersections = new ArrayList<>(otherPLIs.size());
+    if (this.isUnique()) {
+      for (PositionListIndex otherPLI : otherPLIs) {
+        intersections.add(intersectMaterialized(null, otherPLI));
+      }
+      return intersections;
+    }
+
+    int[] materializedPLI = asArray(acquireMaterializationBuffer(getNumberOfRows()));
+    try {
+      for (PositionListIndex otherPLI : otherPLIs) {
+        intersections.add(intersectMaterialized(materializedPLI, otherPLI));
+      }
+    }
+    finally {
+      clearArray(materializedPLI);
+      releaseMaterializationBuffer(materializedPLI);
+    }
+
+    return intersections;
+  }
+
+  /**
+   * Intersects this PositionListIndex with each of the given PositionListIndexes like {@link
+   * #intersect(List)}, but probes the given plis in parallel on the executor. The materialization
+   * of this pli is shared by all tasks.
+   * @param otherPLIs the other {@link PositionListIndex}es to intersect
+   * @param executor  the executor to run the probes on
+   * @return one intersected {@link PositionListIndex} per given pli in the same order
+   * @throws InterruptedException if interrupted while waiting for the probes
+   */
+  public List<PositionListIndex> intersect(List<? extends PositionListIndex> otherPLIs,
+                                           ExecutorService executor)
+    throws InterruptedException
+  {
+    final int[] materializedPLI = this.isUnique() ? null : this.asArray();
+    List<Future<PositionListIndex>> futures = new ArrayList<>(otherPLIs.size());
+    for (final PositionListIndex otherPLI : otherPLIs) {
+      futures.add(executor.submit(new Callable<PositionListIndex>() {
+        @Override
+        public PositionListIndex call() {
+          return intersectMaterialized(materializedPLI, otherPLI);
+        }
+      }));
+    }
+
+    List<PositionListIndex> intersections = new ArrayList<>(otherPLIs.size());
+    try {
+      for (Future<PositionListIndex> future : futures) {
+        intersections.add(future.get());
+      }
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    finally {
+      for (Future<PositionListIndex> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    return intersections;
+  }
+
+  protected PositionListIndex intersectMaterialized(int[] materializedPLI,
+                                                    PositionListIndex otherPLI)
+  {
+    if ((materializedPLI == null) || (otherPLI.isUnique())) {
+      return new PositionListIndex(new ArrayList<IntArrayList>(), getNumberOfRows());
+    }
+
+    return probeIntersection(materializedPLI, otherPLI, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Intersects all given PositionListIndexes at once. The plis are ordered by their raw key error,
+   * the clusters of the pli with the lowest raw key error are refined with one pli after the other
+   * (see {@link MultiClusterIntersector}). Rows are dropped as soon as they end up in a unary
+   * cluster and no intermediate position list indices are created. This is faster and needs less
+   * memory than a chain of pairwise intersections.
+   * @param plis the {@link PositionListIndex}es to intersect
+   * @return the intersected {@link PositionListIndex}
+   */
+  public static PositionListIndex intersectAll(List<? extends PositionListIndex> plis) {
+    if (plis.isEmpty()) {
+      throw new IllegalArgumentException("At least one position list index is needed.");
+    }
+
+    List<PositionListIndex> orderedPLIs = new ArrayList<PositionListIndex>(plis);
+    Collections.sort(orderedPLIs, new Comparator<PositionListIndex>() {
+      @Override
+      public int compare(PositionListIndex o1, PositionListIndex o2) {
+        return Integer.compare(o1.getRawKeyError(), o2.getRawKeyError());
+      }
+    });
+
+    PositionListIndex firstPLI = orderedPLIs.get(0);
+    if (firstPLI.isUnique()) {
+      return new PositionListIndex(new ArrayList<IntArrayList>(), firstPLI.getNumberOfRows());
+    }
+
+    MultiClusterIntersector intersector = new MultiClusterIntersector(firstPLI);
+    for (int i = 1; (i < orderedPLIs.size()) && (!intersector.isUnique()); i++) {
+      intersector.refine(orderedPLIs.get(i));
+    }
+
+    return intersector.getPositionListIndex(firstPLI.getNumberOfRows());
+  }
+
+  /**
+   * Records the intersection of this and the given PositionListIndex without calculating it. The
+   * intersection is materialized when its clusters are needed first. Chained lazy intersections are
+   * fused and materialized in one pass of {@link #intersectAll(List)}.
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @return the lazily intersected {@link PositionListIndex}
+   * @see LazyPositionListIndex
+   */
+  public LazyPositionListIndex intersectLazily(PositionListIndex otherPLI) {
+    return new LazyPositionListIndex(Arrays.asList(this, otherPLI));
+  }
+
+  /**
+   * Calculates the raw key error of the intersection of this and the given PositionListIndex
+   * without materializing the intersected clusters.
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @return the raw key error of the intersected {@link PositionListIndex}
+   * @see #countIntersection(PositionListIndex)
+   */
+  public int getIntersectionRawKeyError(PositionListIndex otherPLI) {
+    return countIntersection(otherPLI).getSecond();
+  }
+
+  /**
+   * Counts the non unary clusters and the raw key error of the intersection of this and the given
+   * PositionListIndex. Only cluster sizes are counted, no clusters are created. The intersection of
+   * ((0, 1, 2), (3, 4)) and ((0, 1), (2, 3, 4)) would be counted as (2, 2).
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @return the number of clusters (first) and the raw key error (second) of the intersection
+   */
+  public IntPair countIntersection(PositionListIndex otherPLI) {
+    if ((this.isUnique()) || (otherPLI.isUnique())) {
+      return new IntPair(0, 0);
+    }
+
+    // The same probing order as in intersect is used.
     if (this.getRawKeyError() > otherPLI.getRawKeyError()) {
-      return calculateIntersection(otherPLI);
+      return calculateIntersectionCount(otherPLI);
     }
     else {
-      return otherPLI.calculateIntersection(this);
+      return otherPLI.calculateIntersectionCount(this);
     }
   }
 
+  /**
+   * Checks whether this PositionListIndex refines the given PositionListIndex, i.e. every cluster
+   * of this pli is contained in one cluster of the other pli. The pli of X refines the pli of A iff
+   * the functional dependency X -&gt; A holds. The other pli is materialized once and the check
+   * stops at the first cluster that spans two different values of the other pli.
+   * @param otherPLI the potentially refined {@link PositionListIndex}
+   * @return true iff this {@link PositionListIndex} refines the other
+   */
+  public boolean refines(PositionListIndex otherPLI) {
+    if (this.isUnique()) {
+      return true;
+    }
+    // Every non unary cluster spans at least two values of a unique pli.
+    if (otherPLI.isUnique()) {
+      return false;
+    }
+
+    final int[] materializedPLI =
+      otherPLI.asArray(acquireMaterializationBuffer(otherPLI.getNumberOfRows()));
+    try {
+      return visitClusters(new ClusterVisitor() {
+        @Override
+        public boolean visitCluster(int[] rows, int offset, int length) {
+          int clusterId = SINGLETON_VALUE;
+          for (int i = offset; i < offset + length; i++) {
+            int rowIndex = rows[i];
+            if ((materializedPLI.length <= rowIndex) ||
+              (materializedPLI[rowIndex] == SINGLETON_VALUE)) {
+              return false;
+            }
+            if (clusterId == SINGLETON_VALUE) {
+              clusterId = materializedPLI[rowIndex];
+            }
+            else if (clusterId != materializedPLI[rowIndex]) {
+              return false;
+            }
+          }
+          return true;
+        }
+      });
+    }
+    finally {
+      otherPLI.clearArray(materializedPLI);
+      releaseMaterializationBuffer(materializedPLI);
+    }
+  }
+
+  /**
+   * Returns the clusters of the {@link PositionListIndex}. Subclasses that do not store boxed
+   * clusters return a newly created copy of their clusters.
+   * @return the non unary clusters
+   */
   public List<IntArrayList> getClusters() {
     return clusters;
   }
 
+  /**
+   * Passes all non unary clusters to the visitor until the visitor stops the visit. The clusters
+   * are passed without copying them.
+   * @param visitor the visitor to pass the clusters to
+   * @return false iff the visitor stopped the visit
+   */
+  public boolean visitClusters(ClusterVisitor visitor) {
+    for (IntArrayList cluster : clusters) {
+      if (!visitor.visitCluster(cluster.elements(), 0, cluster.size())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Iterates over the sizes of all non unary clusters in the order of {@link
+   * #visitClusters(ClusterVisitor)} without passing their rows.
+   * @return an iterator over the cluster sizes
+   */
+  public IntIterator clusterSizeIterator() {
+    if (clusters != null) {
+      final Iterator<IntArrayList> clusterIterator = clusters.iterator();
+      return new AbstractIntIterator() {
+        @Override
+        public boolean hasNext() {
+          return clusterIterator.hasNext();
+        }
+
+        @Override
+        public int nextInt() {
+          return clusterIterator.next().size();
+        }
+      };
+    }
+
+    final IntArrayList clusterSizes = new IntArrayList(size());
+    visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        clusterSizes.add(length);
+        return true;
+      }
+    });
+    return clusterSizes.iterator();
+  }
+
+  /**
+   * Passes the k largest non unary clusters to the visitor, the largest cluster first. Clusters of
+   * the same size are passed in the order of {@link #visitClusters(ClusterVisitor)}. Only the
+   * selected clusters are copied.
+   * @param k       the maximum number of clusters to visit
+   * @param visitor the visitor to pass the clusters to
+   * @return false iff the visitor stopped the visit
+   */
+  public boolean visitLargestClusters(int k, ClusterVisitor visitor) {
+    int numberOfClusters = size();
+    final int numberOfLargestClusters = Math.min(k, numberOfClusters);
+    if (numberOfLargestClusters <= 0) {
+      return true;
+    }
+
+    // Sort the clusters by size and descending index, so the largest clusters come last.
+    long[] sizesAndIndices = new long[numberOfClusters];
+    IntIterator clusterSizes = clusterSizeIterator();
+    for (int i = 0; i < numberOfClusters; i++) {
+      sizesAndIndices[i] = ((long) clusterSizes.nextInt() << 32) | (numberOfClusters - 1 - i);
+    }
+    Arrays.sort(sizesAndIndices);
+
+    final int[] ranks = new int[numberOfClusters];
+    Arrays.fill(ranks, -1);
+    for (int rank = 0; rank < numberOfLargestClusters; rank++) {
+      int index = numberOfClusters - 1 - (int) sizesAndIndices[numberOfClusters - 1 - rank];
+      ranks[index] = rank;
+    }
+
+    final int[][] largestClusters = new int[numberOfLargestClusters][];
+    visitClusters(new ClusterVisitor() {
+      protected int clusterIndex = 0;
+      protected int numberOfCopiedClusters = 0;
+
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        int rank = ranks[clusterIndex++];
+        if (rank != -1) {
+          largestClusters[rank] = Arrays.copyOfRange(rows, offset, offset + length);
+          numberOfCopiedClusters++;
+        }
+        return numberOfCopiedClusters < numberOfLargestClusters;
+      }
+    });
+
+    for (int[] cluster : largestClusters) {
+      if (!visitor.visitCluster(cluster, 0, cluster.length)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public int getNumberOfRows() {
     return numberOfRows;
   }
 
+  /**
+   * Estimates the number of heap bytes held by the {@link PositionListIndex}. Subclasses add the
+   * size of their own representation. The canonical clusters cached by {@link #equals(Object)} and
+   * {@link #hashCode()} are counted once they have been computed.
+   * @return the estimated memory size in bytes
+   */
+  public long getMemorySize() {
+    long memorySize = OBJECT_MEMORY_SIZE;
+    if (clusters != null) {
+      memorySize += OBJECT_MEMORY_SIZE + getArrayMemorySize(clusters.size(), REFERENCE_MEMORY_SIZE);
+      for (IntArrayList cluster : clusters) {
+        memorySize += OBJECT_MEMORY_SIZE + getArrayMemorySize(cluster.elements().length, 4);
+      }
+    }
+    CanonicalClusters canonicalClusters = this.canonicalClusters;
+    if (canonicalClusters != null) {
+      memorySize += canonicalClusters.getMemorySize();
+    }
+
+    return memorySize;
+  }
+
+  protected static long getArrayMemorySize(int length, long elementSize) {
+    return ARRAY_MEMORY_SIZE + length * elementSize;
+  }
+
   /**
    * Creates a complete (deep) copy of the {@link de.metanome.algorithm_helper.data_structures.PositionListIndex}.
    * @return cloned PositionListIndex
@@ -99,8 +588,12 @@ public class PositionListIndex implements Serializable {
       newClusters.add(cluster.clone());
     }
 
-    PositionListIndex clone = new PositionListIndex(newClusters, this.numberOfRows);
+    PositionListIndex clone =
+      new PositionListIndex(newClusters, this.numberOfRows, this.clustersSorted);
     clone.rawKeyError = this.rawKeyError;
+    clone.largestClusterSize = this.largestClusterSize;
+    clone.statistics = this.statistics;
+    clone.sketch = this.sketch;
     return clone;
   }
 
@@ -108,16 +601,7 @@ public class PositionListIndex implements Serializable {
   public int hashCode() {
     final int prime = 31;
 
-    List<IntOpenHashSet> setCluster = convertClustersToSets(getClusters());
-
-    Collections.sort(setCluster, new Comparator<IntSet>() {
-
-      @Override
-      public int compare(IntSet o1, IntSet o2) {
-        return o1.hashCode() - o2.hashCode();
-      }
-    });
-    return prime * setCluster.hashCode() + getNumberOfRows();
+    return prime * getCanonicalClusters().hashCode() + getNumberOfRows();
   }
 
   @Override
@@ -129,92 +613,126 @@ public class PositionListIndex implements Serializable {
     if (obj == null) {
       return false;
     }
-    if (getClass() != obj.getClass()) {
+    if (!(obj instanceof PositionListIndex)) {
       return false;
     }
     PositionListIndex other = (PositionListIndex) obj;
     if (getNumberOfRows() != other.getNumberOfRows()) {
       return false;
     }
-    if (clusters == null) {
-      if (other.clusters != null) {
-        return false;
-      }
-    }
-    else {
-      List<IntOpenHashSet> setCluster = convertClustersToSets(clusters);
-      List<IntOpenHashSet> otherSetCluster = convertClustersToSets(other.clusters);
-
-      for (IntOpenHashSet cluster : setCluster) {
-        if (!otherSetCluster.contains(cluster)) {
-          return false;
-        }
-      }
-      for (IntOpenHashSet cluster : otherSetCluster) {
-        if (!setCluster.contains(cluster)) {
-          return false;
-        }
-      }
-    }
 
-    return true;
+    return getCanonicalClusters().equals(other.getCanonicalClusters());
   }
 
-  protected List<IntOpenHashSet> convertClustersToSets(List<IntArrayList> listCluster) {
-    List<IntOpenHashSet> setClusters = new LinkedList<>();
-    for (IntList cluster : listCluster) {
-      setClusters.add(new IntOpenHashSet(cluster));
+  /**
+   * Returns the normalized clusters of this {@link PositionListIndex}. The normalized form is
+   * computed once and cached, so equality checks and hashing are linear and do not allocate.
+   * @return the canonical clusters
+   */
+  CanonicalClusters getCanonicalClusters() {
+    CanonicalClusters canonicalClusters = this.canonicalClusters;
+    if (canonicalClusters == null) {
+      canonicalClusters = new CanonicalClusters(this);
+      this.canonicalClusters = canonicalClusters;
     }
 
-    return setClusters;
+    return canonicalClusters;
   }
 
   /**
    * Intersects the two given {@link PositionListIndex} and returns the outcome as new
-   * PositionListIndex.
+   * PositionListIndex. This pli is materialized as array, the other pli's clusters are probed one
+   * after the other (see {@link ClusterIntersector}).
    * @param otherPLI the other {@link PositionListIndex} to intersect
    * @return the intersected {@link PositionListIndex}
    */
   protected PositionListIndex calculateIntersection(PositionListIndex otherPLI) {
-    int[] materializedPLI = this.asArray();
-    Map<IntPair, IntArrayList> map = new HashMap<>();
-    buildMap(otherPLI, materializedPLI, map);
-
-    List<IntArrayList> clusters = new ArrayList<>();
-    for (IntArrayList cluster : map.values()) {
-      if (cluster.size() < 2) {
-        continue;
-      }
-      clusters.add(cluster);
+    return calculateIntersection(otherPLI, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Intersects the two given {@link PositionListIndex} and returns the outcome as new
+   * PositionListIndex. The intersection is aborted as soon as the raw key error of the intersection
+   * exceeds the given maximum.
+   * @param otherPLI           the other {@link PositionListIndex} to intersect
+   * @param maximumRawKeyError the maximum raw key error of the intersection
+   * @return the intersected {@link PositionListIndex} or null if its raw key error exceeds the
+   * maximum
+   */
+  protected PositionListIndex calculateIntersection(PositionListIndex otherPLI,
+                                                    int maximumRawKeyError)
+  {
+    int[] materializedPLI = asArray(acquireMaterializationBuffer(getNumberOfRows()));
+    try {
+      return probeIntersection(materializedPLI, otherPLI, maximumRawKeyError);
+    }
+    finally {
+      clearArray(materializedPLI);
+      releaseMaterializationBuffer(materializedPLI);
     }
-    return new PositionListIndex(clusters, numberOfRows);
   }
 
-  protected void buildMap(PositionListIndex otherPLI, int[] materializedPLI,
-                          Map<IntPair, IntArrayList> map)
+  /**
+   * Probes the clusters of the given pli against the materialization of this pli. The
+   * materialization is only read, so it can be shared by several concurrent probes.
+   * @param materializedPLI    the materialization of this pli (see {@link #asArray()})
+   * @param probingPLI         the {@link PositionListIndex} whose clusters are probed
+   * @param maximumRawKeyError the maximum raw key error of the intersection
+   * @return the intersected {@link PositionListIndex} or null if its raw key error exceeds the
+   * maximum
+   */
+  protected PositionListIndex probeIntersection(int[] materializedPLI,
+                                                PositionListIndex probingPLI,
+                                                int maximumRawKeyError)
   {
-    int uniqueValueCount = 0;
-    for (IntArrayList sameValues : otherPLI.clusters) {
-      for (int rowCount : sameValues) {
-        if ((materializedPLI.length > rowCount) &&
-          (materializedPLI[rowCount] != SINGLETON_VALUE)) {
-          IntPair pair = new IntPair(uniqueValueCount, materializedPLI[rowCount]);
-          updateMap(map, rowCount, pair);
-        }
-      }
-      uniqueValueCount++;
+    ClusterIntersector intersector =
+      new ClusterIntersector(materializedPLI, size(), maximumRawKeyError);
+    if (!probingPLI.visitClusters(intersector)) {
+      return null;
     }
+
+    // The rows of every intersected cluster keep the order of the probing cluster.
+    PositionListIndex intersection = new PositionListIndex(intersector.getClusters(),
+      getNumberOfRows(), probingPLI.hasSortedClusters());
+    intersection.rawKeyError = intersector.getRawKeyError();
+    return intersection;
+  }
+
+  /**
+   * Intersects the two given {@link PositionListIndex}es with sorted clusters by merging every pair
+   * of overlapping clusters (see {@link SortedClusterIntersector}). No array over all rows is
+   * materialized.
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @return the intersected {@link PositionListIndex}
+   */
+  protected PositionListIndex calculateMergeIntersection(PositionListIndex otherPLI) {
+    SortedClusterIntersector intersector = new SortedClusterIntersector(this, otherPLI);
+    intersector.intersect();
+
+    PositionListIndex intersection =
+      new PositionListIndex(intersector.getClusters(), getNumberOfRows(), true);
+    intersection.rawKeyError = intersector.getRawKeyError();
+    return intersection;
   }
 
-  protected void updateMap(Map<IntPair, IntArrayList> map, int rowCount, IntPair pair) {
-    if (map.containsKey(pair)) {
-      IntArrayList currentList = map.get(pair);
-      currentList.add(rowCount);
+  /**
+   * Counts the clusters and the raw key error of the intersection of the two given {@link
+   * PositionListIndex}. Probing works as in {@link #calculateIntersection(PositionListIndex)}, but
+   * only the sizes of the partial clusters are tracked (see {@link ClusterIntersectionCounter}).
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @return the number of clusters (first) and the raw key error (second) of the intersection
+   */
+  protected IntPair calculateIntersectionCount(PositionListIndex otherPLI) {
+    int[] materializedPLI = asArray(acquireMaterializationBuffer(getNumberOfRows()));
+    try {
+      ClusterIntersectionCounter counter = new ClusterIntersectionCounter(materializedPLI, size());
+      otherPLI.visitClusters(counter);
+
+      return counter.getCount();
     }
-    else {
-      IntArrayList newList = new IntArrayList();
-      newList.add(rowCount);
-      map.put(pair, newList);
+    finally {
+      clearArray(materializedPLI);
+      releaseMaterializationBuffer(materializedPLI);
     }
   }
 
@@ -226,14 +744,19 @@ public class PositionListIndex implements Serializable {
    * @return the pli as hash map
    */
   public Int2IntOpenHashMap asHashMap() {
-    Int2IntOpenHashMap hashedPLI = new Int2IntOpenHashMap(clusters.size());
-    int uniqueValueCount = 0;
-    for (IntArrayList sameValues : clusters) {
-      for (int rowIndex : sameValues) {
-        hashedPLI.put(rowIndex, uniqueValueCount);
+    final Int2IntOpenHashMap hashedPLI = new Int2IntOpenHashMap(size());
+    visitClusters(new ClusterVisitor() {
+      protected int uniqueValueCount = 0;
+
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+          hashedPLI.put(rows[i], uniqueValueCount);
+        }
+        uniqueValueCount++;
+        return true;
       }
-      uniqueValueCount++;
-    }
+    });
     return hashedPLI;
   }
 
@@ -243,16 +766,92 @@ public class PositionListIndex implements Serializable {
    * @return the pli as list
    */
   public int[] asArray() {
-    int[] materializedPli = new int[getNumberOfRows()];
-    int uniqueValueCount = SINGLETON_VALUE + 1;
-    for (IntArrayList sameValues : clusters) {
-      for (int rowIndex : sameValues) {
-        materializedPli[rowIndex] = uniqueValueCount;
+    return asArray(new int[getNumberOfRows()]);
+  }
+
+  /**
+   * Materializes the PLI into the given buffer like {@link #asArray()}. Only the rows of non unary
+   * clusters are written, so the buffer has to contain {@link #SINGLETON_VALUE} in all other
+   * entries. Use {@link #clearArray(int[])} to reset the buffer for reuse.
+   * @param buffer a buffer with at least {@link #getNumberOfRows()} entries that are all {@link
+   *               #SINGLETON_VALUE}
+   * @return the given buffer
+   */
+  public int[] asArray(final int[] buffer) {
+    visitClusters(new ClusterVisitor() {
+      protected int uniqueValueCount = SINGLETON_VALUE + 1;
+
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+          buffer[rows[i]] = uniqueValueCount;
+        }
+        uniqueValueCount++;
+        return true;
+      }
+    });
+
+    return buffer;
+  }
+
+  /**
+   * Resets all entries written by {@link #asArray(int[])} to {@link #SINGLETON_VALUE}. Only the rows
+   * of non unary clusters are touched.
+   * @param buffer the buffer this pli has been materialized into
+   */
+  public void clearArray(final int[] buffer) {
+    visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+          buffer[rows[i]] = SINGLETON_VALUE;
+        }
+        return true;
       }
-      uniqueValueCount++;
+    });
+  }
+
+  /**
+   * Takes the materialization buffer of the current thread. The buffer contains only {@link
+   * #SINGLETON_VALUE}s and has to be returned with {@link #releaseMaterializationBuffer(int[])}
+   * after clearing it. Nested calls get a new buffer.
+   * @param numberOfRows the minimum size of the buffer
+   * @return a cleared buffer with at least numberOfRows entries
+   */
+  protected static int[] acquireMaterializationBuffer(int numberOfRows) {
+    int[] buffer = MATERIALIZATION_BUFFER.get();
+    MATERIALIZATION_BUFFER.remove();
+    if ((buffer == null) || (buffer.length < numberOfRows)) {
+      buffer = new int[numberOfRows];
     }
+    return buffer;
+  }
 
-    return materializedPli;
+  /**
+   * @param numberOfRows the minimum size of the buffer
+   * @return true iff the current thread holds a materialization buffer with at least numberOfRows
+   * entries, so that acquiring it does not allocate
+   */
+  protected static boolean hasMaterializationBuffer(int numberOfRows) {
+    int[] buffer = MATERIALIZATION_BUFFER.get();
+    return (buffer != null) && (buffer.length >= numberOfRows);
+  }
+
+  /**
+   * Returns a cleared buffer taken with {@link #acquireMaterializationBuffer(int)} to the current
+   * thread, so that the next materialization does not allocate.
+   * @param buffer the cleared buffer
+   */
+  protected static void releaseMaterializationBuffer(int[] buffer) {
+    MATERIALIZATION_BUFFER.set(buffer);
+  }
+
+  /**
+   * Frees the materialization buffer of the current thread. The buffer grows to the largest number
+   * of rows materialized in the thread and is otherwise kept until the thread terminates.
+   */
+  public static void freeMaterializationBuffer() {
+    MATERIALIZATION_BUFFER.remove();
   }
 
   protected void addOrExtendList(IntList list, int value, int index) {
@@ -285,6 +884,13 @@ public class PositionListIndex implements Serializable {
     return isEmpty();
   }
 
+  /**
+   * @return true iff the rows of every cluster are known to be in ascending order
+   */
+  public boolean hasSortedClusters() {
+    return clustersSorted;
+  }
+
   /**
    * Returns the number of columns to remove in order to make column unique. (raw key error)
    * @return raw key error
@@ -297,20 +903,338 @@ public class PositionListIndex implements Serializable {
     return rawKeyError;
   }
 
+  /**
+   * Returns an upper bound of the raw key error that might be cheaper to calculate than the raw key
+   * error itself. The bound is exact for materialized plis.
+   * @return an upper bound of the raw key error
+   */
+  public int getRawKeyErrorUpperBound() {
+    return getRawKeyError();
+  }
+
+  /**
+   * @return the number of rows in non unary clusters
+   */
+  public int getNumberOfClusterRows() {
+    return getRawKeyError() + size();
+  }
+
+  /**
+   * @return the number of rows in the largest cluster or 0 if there are no clusters
+   */
+  public int getLargestClusterSize() {
+    if (largestClusterSize == -1) {
+      final int[] maximumClusterSize = {0};
+      visitClusters(new ClusterVisitor() {
+        @Override
+        public boolean visitCluster(int[] rows, int offset, int length) {
+          maximumClusterSize[0] = Math.max(maximumClusterSize[0], length);
+          return true;
+        }
+      });
+      largestClusterSize = maximumClusterSize[0];
+    }
+
+    return largestClusterSize;
+  }
+
+  /**
+   * Returns the statistics of this {@link PositionListIndex}. The statistics are calculated in a
+   * single pass over the cluster sizes on first use and cached until the pli is modified.
+   * @return the statistics
+   */
+  public PLIStatistics getStatistics() {
+    PLIStatistics statistics = this.statistics;
+    if (statistics == null) {
+      statistics = PLIStatistics.calculate(getNumberOfRows(), clusterSizeIterator());
+      if (rawKeyError == -1) {
+        rawKeyError = statistics.getRawKeyError();
+      }
+      if (largestClusterSize == -1) {
+        largestClusterSize = statistics.getLargestClusterSize();
+      }
+      this.statistics = statistics;
+    }
+
+    return statistics;
+  }
+
+  /**
+   * Returns a sketch of this {@link PositionListIndex} with the default sample size (see {@link
+   * PLISketch}). The sketch is created on first use and cached until the pli is modified.
+   * @return the sketch
+   */
+  public PLISketch getSketch() {
+    PLISketch sketch = this.sketch;
+    if (sketch == null) {
+      sketch = PLISketch.create(this, PLISketch.DEFAULT_SAMPLE_SIZE);
+      this.sketch = sketch;
+    }
+
+    return sketch;
+  }
+
+  /**
+   * Sets the number of rows after rows were appended in place.
+   * @param numberOfRows the number of rows in the indexed column
+   */
+  protected void setNumberOfRows(int numberOfRows) {
+    this.numberOfRows = numberOfRows;
+    statistics = null;
+    sketch = null;
+  }
+
+  /**
+   * Updates the cached statistics after a row was appended to one of the clusters in place. The
+   * raw key error and the largest cluster size are maintained without revisiting the other
+   * clusters. Adding the cluster to the list of clusters once it holds two rows is up to the
+   * caller.
+   * @param clusterSize the size of the modified cluster after the row was added
+   */
+  protected void rowAddedToCluster(int clusterSize) {
+    if (clusterSize < 2) {
+      return;
+    }
+    if (rawKeyError != -1) {
+      rawKeyError++;
+    }
+    if ((largestClusterSize != -1) && (clusterSize > largestClusterSize)) {
+      largestClusterSize = clusterSize;
+    }
+    canonicalClusters = null;
+    statistics = null;
+    sketch = null;
+  }
+
+  /**
+   * Updates the cached statistics after a row was removed from one of the clusters in place.
+   * Removing the cluster from the list of clusters once it holds less than two rows is up to the
+   * caller.
+   * @param clusterSize the size of the modified cluster after the row was removed
+   */
+  protected void rowRemovedFromCluster(int clusterSize) {
+    if (clusterSize == 0) {
+      return;
+    }
+    if (rawKeyError != -1) {
+      rawKeyError--;
+    }
+    if ((largestClusterSize != -1) && (clusterSize + 1 == largestClusterSize)) {
+      // Another cluster might have the same size, so the largest size is recalculated lazily.
+      largestClusterSize = -1;
+    }
+    canonicalClusters = null;
+    statistics = null;
+    sketch = null;
+  }
+
   protected int calculateRawKeyError() {
-    int sumClusterSize = 0;
+    final int[] sumClusterSize = {0};
+    visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        sumClusterSize[0] += length;
+        return true;
+      }
+    });
+
+    return sumClusterSize[0] - size();
+  }
+
+  /**
+   * Serializes the number of rows, the raw key error, the largest cluster size, whether the
+   * clusters are sorted and the clusters as bulk int arrays. The rows of every cluster are written
+   * as zig-zag encoded deltas in variable length encoding if this is smaller than the plain four
+   * byte encoding. Subclasses storing the clusters in their own representation only write the
+   * statistics and the sorted flag here, followed by a marker for the missing clusters.
+   */
+  private void writeObject(ObjectOutputStream outputStream) throws IOException {
+    outputStream.writeInt(numberOfRows);
+    outputStream.writeInt(getRawKeyError());
+    outputStream.writeInt(largestClusterSize);
+    outputStream.writeBoolean(clustersSorted);
+
+    if (clusters == null) {
+      outputStream.writeInt(-1);
+      return;
+    }
 
+    outputStream.writeInt(clusters.size());
+    long numberOfClusterRows = 0;
+    long varIntSize = 0;
     for (IntArrayList cluster : clusters) {
-      sumClusterSize += cluster.size();
+      numberOfClusterRows += cluster.size();
+      varIntSize += calculateVarIntSize(cluster.elements(), 0, cluster.size());
     }
+    byte encoding = varIntSize < 4 * numberOfClusterRows ? VARINT_ENCODING : PLAIN_ENCODING;
+    long payloadSize = encoding == VARINT_ENCODING ? varIntSize : 4 * numberOfClusterRows;
+    outputStream.writeByte(encoding);
+    outputStream.writeLong(payloadSize);
+
+    int[] clusterSizes = new int[clusters.size()];
+    for (int i = 0; i < clusterSizes.length; i++) {
+      clusterSizes[i] = clusters.get(i).size();
+    }
+    byte[] buffer = new byte[SERIALIZATION_BUFFER_SIZE];
+    writeInts(outputStream, buffer, clusterSizes, 0, clusterSizes.length);
+
+    int position = 0;
+    for (IntArrayList cluster : clusters) {
+      int[] rows = cluster.elements();
+      int previousRow = 0;
+      for (int i = 0; i < cluster.size(); i++) {
+        if (position > buffer.length - 5) {
+          outputStream.write(buffer, 0, position);
+          position = 0;
+        }
+        if (encoding == VARINT_ENCODING) {
+          position = writeVarInt(buffer, position, zigZagEncode(rows[i] - previousRow));
+          previousRow = rows[i];
+        }
+        else {
+          position = writeInt(buffer, position, rows[i]);
+        }
+      }
+    }
+    outputStream.write(buffer, 0, position);
+  }
+
+  private void readObject(ObjectInputStream inputStream)
+    throws IOException, ClassNotFoundException
+  {
+    numberOfRows = inputStream.readInt();
+    rawKeyError = inputStream.readInt();
+    largestClusterSize = inputStream.readInt();
+    clustersSorted = inputStream.readBoolean();
+
+    int numberOfClusters = inputStream.readInt();
+    if (numberOfClusters == -1) {
+      clusters = null;
+      return;
+    }
+
+    byte encoding = inputStream.readByte();
+    long remainingPayload = inputStream.readLong();
+    if ((encoding != PLAIN_ENCODING) && (encoding != VARINT_ENCODING)) {
+      throw new IOException("Unknown position list index encoding " + encoding + ".");
+    }
+
+    byte[] buffer = new byte[SERIALIZATION_BUFFER_SIZE];
+    int[] clusterSizes = new int[numberOfClusters];
+    readInts(inputStream, buffer, clusterSizes);
+
+    clusters = new ArrayList<>(numberOfClusters);
+    int position = 0;
+    int limit = 0;
+    for (int clusterSize : clusterSizes) {
+      int[] rows = new int[clusterSize];
+      int previousRow = 0;
+      for (int i = 0; i < clusterSize; i++) {
+        if ((limit - position < 5) && (remainingPayload > 0)) {
+          System.arraycopy(buffer, position, buffer, 0, limit - position);
+          limit -= position;
+          position = 0;
+          int length = (int) Math.min(buffer.length - limit, remainingPayload);
+          inputStream.readFully(buffer, limit, length);
+          limit += length;
+          remainingPayload -= length;
+        }
+        if (encoding == VARINT_ENCODING) {
+          int value = 0;
+          int shift = 0;
+          byte currentByte;
+          do {
+            currentByte = buffer[position++];
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+          } while (currentByte < 0);
+          previousRow += zigZagDecode(value);
+          rows[i] = previousRow;
+        }
+        else {
+          rows[i] = readInt(buffer, position);
+          position += 4;
+        }
+      }
+      clusters.add(IntArrayList.wrap(rows));
+    }
+  }
+
+  private static void writeInts(ObjectOutputStream outputStream, byte[] buffer, int[] values,
+                                int offset, int length) throws IOException
+  {
+    int position = 0;
+    for (int i = offset; i < offset + length; i++) {
+      if (position == buffer.length) {
+        outputStream.write(buffer, 0, position);
+        position = 0;
+      }
+      position = writeInt(buffer, position, values[i]);
+    }
+    outputStream.write(buffer, 0, position);
+  }
+
+  private static void readInts(ObjectInputStream inputStream, byte[] buffer, int[] values)
+    throws IOException
+  {
+    int index = 0;
+    while (index < values.length) {
+      int count = Math.min(buffer.length / 4, values.length - index);
+      inputStream.readFully(buffer, 0, count * 4);
+      for (int i = 0; i < count; i++) {
+        values[index++] = readInt(buffer, i * 4);
+      }
+    }
+  }
+
+  private static int writeInt(byte[] buffer, int position, int value) {
+    buffer[position] = (byte) (value >>> 24);
+    buffer[position + 1] = (byte) (value >>> 16);
+    buffer[position + 2] = (byte) (value >>> 8);
+    buffer[position + 3] = (byte) value;
+    return position + 4;
+  }
+
+  private static int readInt(byte[] buffer, int position) {
+    return ((buffer[position] & 0xFF) << 24)
+      | ((buffer[position + 1] & 0xFF) << 16)
+      | ((buffer[position + 2] & 0xFF) << 8)
+      | (buffer[position + 3] & 0xFF);
+  }
+
+  private static int writeVarInt(byte[] buffer, int position, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+    return position;
+  }
+
+  private static long calculateVarIntSize(int[] rows, int offset, int length) {
+    long size = 0;
+    int previousRow = 0;
+    for (int i = offset; i < offset + length; i++) {
+      int value = zigZagEncode(rows[i] - previousRow);
+      previousRow = rows[i];
+      size += (value & ~0x7F) == 0 ? 1 : (value & ~0x3FFF) == 0 ? 2
+        : (value & ~0x1FFFFF) == 0 ? 3 : (value & ~0xFFFFFFF) == 0 ? 4 : 5;
+    }
+    return size;
+  }
+
+  private static int zigZagEncode(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
 
-    return sumClusterSize - clusters.size();
+  private static int zigZagDecode(int value) {
+    return (value >>> 1) ^ -(value & 1);
   }
 
   @Override
   public String toString() {
     return "PositionListIndex{" +
-      "clusters=" + clusters +
+      "clusters=" + getClusters() +
       ", numberOfRows=" + getNumberOfRows() +
       ", rawKeyError=" + getRawKeyError() +
       '}';
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Renumbers the rows of position list indices to a dense range. Only rows that are part of a non
+ * unary cluster in one of the plis the compaction is built from keep an identifier, all other rows
+ * are singletons in every intersection with these plis and are dropped. The compact row
+ * identifiers keep the order of the original rows, so sorted clusters stay sorted.
+ * <p/>
+ * Compacting the plis of a discovery session once shrinks all subsequent materializations (see
+ * {@link PositionListIndex#asArray()}) from the number of rows in the relation to the number of
+ * relevant rows. Intersections of compacted plis can be mapped back with {@link
+ * #expand(PositionListIndex)}.
+ */
+public class RowIdCompaction {
+
+  public static final int DROPPED_ROW = -1;
+
+  protected final int[] compactRowIds;
+  protected final int[] originalRowIds;
+
+  /**
+   * Builds a compaction that keeps all rows in non unary clusters of the given plis. Compacting
+   * any of these plis is lossless, compacting other plis drops the rows that are irrelevant for
+   * intersections with the given plis.
+   * @param plis the {@link PositionListIndex}es whose rows are kept
+   */
+  public RowIdCompaction(List<? extends PositionListIndex> plis) {
+    int numberOfRows = 0;
+    for (PositionListIndex pli : plis) {
+      numberOfRows = Math.max(numberOfRows, pli.getNumberOfRows());
+    }
+
+    this.compactRowIds = new int[numberOfRows];
+    Arrays.fill(compactRowIds, DROPPED_ROW);
+    for (PositionListIndex pli : plis) {
+      pli.visitClusters(new ClusterVisitor() {
+        @Override
+        public boolean visitCluster(int[] rows, int offset, int length) {
+          for (int i = offset; i < offset + length; i++) {
+            compactRowIds[rows[i]] = 0;
+          }
+          return true;
+        }
+      });
+    }
+
+    int numberOfCompactRows = 0;
+    for (int row = 0; row < numberOfRows; row++) {
+      if (compactRowIds[row] != DROPPED_ROW) {
+        compactRowIds[row] = numberOfCompactRows++;
+      }
+    }
+    this.originalRowIds = new int[numberOfCompactRows];
+    for (int row = 0; row < numberOfRows; row++) {
+      if (compactRowIds[row] != DROPPED_ROW) {
+        originalRowIds[compactRowIds[row]] = row;
+      }
+    }
+  }
+
+  /**
+   * Builds a compaction that keeps all rows in non unary clusters of the given pli.
+   * @param pli the {@link PositionListIndex} whose rows are kept
+   */
+  public RowIdCompaction(PositionListIndex pli) {
+    this(Arrays.asList(pli));
+  }
+
+  /**
+   * Renumbers the rows of the given pli. Dropped rows are removed from their clusters, clusters
+   * that become unary are discarded.
+   * @param pli the {@link PositionListIndex} over the original rows
+   * @return the {@link PositionListIndex} over the compact rows
+   */
+  public PositionListIndex compact(PositionListIndex pli) {
+    final List<IntArrayList> clusters = new ArrayList<>(pli.size());
+    final int[] buffer = new int[pli.getLargestClusterSize()];
+    final int[] rawKeyError = {0};
+    pli.visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        int compactLength = 0;
+        for (int i = offset; i < offset + length; i++) {
+          int compactRowId = getCompactRowId(rows[i]);
+          if (compactRowId != DROPPED_ROW) {
+            buffer[compactLength++] = compactRowId;
+          }
+        }
+        if (compactLength > 1) {
+          clusters.add(new IntArrayList(buffer, 0, compactLength));
+          rawKeyError[0] += compactLength - 1;
+        }
+        return true;
+      }
+    });
+
+    PositionListIndex compactPLI =
+      new PositionListIndex(clusters, getNumberOfRows(), pli.hasSortedClusters());
+    compactPLI.rawKeyError = rawKeyError[0];
+    return compactPLI;
+  }
+
+  /**
+   * Renumbers the rows of all given plis (see {@link #compact(PositionListIndex)}).
+   * @param plis the {@link PositionListIndex}es over the original rows
+   * @return the {@link PositionListIndex}es over the compact rows in the same order
+   */
+  public List<PositionListIndex> compactAll(List<? extends PositionListIndex> plis) {
+    List<PositionListIndex> compactPLIs = new ArrayList<>(plis.size());
+    for (PositionListIndex pli : plis) {
+      compactPLIs.add(compact(pli));
+    }
+    return compactPLIs;
+  }
+
+  /**
+   * Maps the rows of a compacted pli back to the original rows.
+   * @param compactPLI a {@link PositionListIndex} over the compact rows
+   * @return the {@link PositionListIndex} over the original rows
+   */
+  public PositionListIndex expand(PositionListIndex compactPLI) {
+    final List<IntArrayList> clusters = new ArrayList<>(compactPLI.size());
+    compactPLI.visitClusters(new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        int[] cluster = new int[length];
+        for (int i = 0; i < length; i++) {
+          cluster[i] = getOriginalRowId(rows[offset + i]);
+        }
+        clusters.add(IntArrayList.wrap(cluster));
+        return true;
+      }
+    });
+
+    PositionListIndex pli = new PositionListIndex(clusters, getNumberOfOriginalRows(),
+      compactPLI.hasSortedClusters());
+    pli.rawKeyError = compactPLI.getRawKeyError();
+    return pli;
+  }
+
+  /**
+   * @param originalRowId a row of the original plis
+   * @return the compact row identifier or {@link #DROPPED_ROW} if the row has been dropped
+   */
+  public int getCompactRowId(int originalRowId) {
+    if (originalRowId >= compactRowIds.length) {
+      return DROPPED_ROW;
+    }
+    return compactRowIds[originalRowId];
+  }
+
+  /**
+   * @param compactRowId a row of the compacted plis
+   * @return the original row identifier
+   */
+  public int getOriginalRowId(int compactRowId) {
+    return originalRowIds[compactRowId];
+  }
+
+  /**
+   * @return the number of compact rows
+   */
+  public int getNumberOfRows() {
+    return originalRowIds.length;
+  }
+
+  /**
+   * @return the number of original rows
+   */
+  public int getNumberOfOriginalRows() {
+    return compactRowIds.length;
+  }
+
+}
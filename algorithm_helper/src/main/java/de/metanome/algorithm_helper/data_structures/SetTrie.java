@@ -159,7 +159,7 @@ public class SetTrie {
     // Prune empty subgraphs.
     subGraph = previousSubGraphs.pop();
     subGraph.subSetEnds = false;
-    while ((!subGraph.subSetEnds) && (subGraph.isEmpty())) {
+    while ((!subGraph.subSetEnds) && (subGraph.isEmpty()) && (!previousSubGraphs.isEmpty())) {
       subGraph = previousSubGraphs.pop();
       subGraph.subGraphs[previousSubGraphIndices.pop()] = null;
     }
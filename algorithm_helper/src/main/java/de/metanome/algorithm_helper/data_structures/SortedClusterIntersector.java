@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Intersects two {@link PositionListIndex}es with sorted clusters by merging every pair of
+ * clusters with overlapping row ranges. The rows of the smaller cluster are searched in the larger
+ * cluster by galloping, so huge clusters are skipped quickly. In contrast to the {@link
+ * ClusterIntersector} no array over all rows is materialized, which pays off if both plis only
+ * consist of few clusters.
+ * @see PositionListIndex#calculateMergeIntersection(PositionListIndex)
+ */
+class SortedClusterIntersector {
+
+  protected final ClusterSlices clusters;
+  protected final ClusterSlices otherClusters;
+  protected final List<IntArrayList> intersectedClusters = new ArrayList<>();
+  protected int rawKeyError = 0;
+
+  /**
+   * @param pli      a {@link PositionListIndex} with sorted clusters
+   * @param otherPLI the other {@link PositionListIndex} with sorted clusters
+   */
+  SortedClusterIntersector(PositionListIndex pli, PositionListIndex otherPLI) {
+    this.clusters = new ClusterSlices(pli);
+    this.otherClusters = new ClusterSlices(otherPLI);
+  }
+
+  /**
+   * Merges all pairs of clusters whose row ranges overlap.
+   */
+  public void intersect() {
+    int[] buffer = new int[Math.min(clusters.maximumLength, otherClusters.maximumLength)];
+    for (int otherIndex = 0; otherIndex < otherClusters.size(); otherIndex++) {
+      int otherFirstRow = otherClusters.getFirstRow(otherIndex);
+      int otherLastRow = otherClusters.getLastRow(otherIndex);
+
+      for (int index = 0; index < clusters.size(); index++) {
+        if ((clusters.getLastRow(index) < otherFirstRow) ||
+          (otherLastRow < clusters.getFirstRow(index))) {
+          continue;
+        }
+
+        int length;
+        if (clusters.lengths[index] <= otherClusters.lengths[otherIndex]) {
+          length = intersectSorted(clusters, index, otherClusters, otherIndex, buffer);
+        }
+        else {
+          length = intersectSorted(otherClusters, otherIndex, clusters, index, buffer);
+        }
+        if (length > 1) {
+          intersectedClusters.add(new IntArrayList(buffer, 0, length));
+          rawKeyError += length - 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Searches the rows of the smaller cluster in the larger cluster.
+   * @return the number of common rows written to the buffer
+   */
+  protected int intersectSorted(ClusterSlices smaller, int smallerIndex, ClusterSlices larger,
+                                int largerIndex, int[] buffer)
+  {
+    int[] smallerRows = smaller.rows[smallerIndex];
+    int smallerEnd = smaller.offsets[smallerIndex] + smaller.lengths[smallerIndex];
+    int[] largerRows = larger.rows[largerIndex];
+    int largerEnd = larger.offsets[largerIndex] + larger.lengths[largerIndex];
+
+    int length = 0;
+    int position = larger.offsets[largerIndex];
+    for (int i = smaller.offsets[smallerIndex]; (i < smallerEnd) && (position < largerEnd); i++) {
+      int row = smallerRows[i];
+      position = gallop(largerRows, position, largerEnd, row);
+      if ((position < largerEnd) && (largerRows[position] == row)) {
+        buffer[length++] = row;
+        position++;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Finds the first position in the sorted range whose row is not smaller than the given row by
+   * doubling the step size and a final binary search.
+   * @return the first position with a row greater than or equal to the given row or to
+   */
+  protected static int gallop(int[] rows, int from, int to, int row) {
+    if ((from >= to) || (rows[from] >= row)) {
+      return from;
+    }
+
+    // Invariant: rows[low] < row
+    int low = from;
+    int step = 1;
+    while ((low + step < to) && (rows[low + step] < row)) {
+      low += step;
+      step <<= 1;
+    }
+
+    int high = Math.min(low + step, to);
+    low++;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (rows[middle] < row) {
+        low = middle + 1;
+      }
+      else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the clusters of the intersection
+   */
+  public List<IntArrayList> getClusters() {
+    return intersectedClusters;
+  }
+
+  /**
+   * @return the raw key error of the intersection
+   */
+  public int getRawKeyError() {
+    return rawKeyError;
+  }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+/**
+ * Merges every pair of overlapping clusters of two plis with sorted clusters (see {@link
+ * SortedClusterIntersector}). The cost grows with the number of cluster pairs, so this strategy
+ * suits plis with few, possibly huge clusters. It cannot intersect plis with unsorted clusters.
+ */
+public class SortedMergeIntersectionStrategy implements IntersectionStrategy {
+
+  @Override
+  public long estimateCost(PositionListIndex pli, PositionListIndex otherPLI) {
+    if ((!pli.hasSortedClusters()) || (!otherPLI.hasSortedClusters())) {
+      return Long.MAX_VALUE;
+    }
+
+    // Every cluster is at most scanned once per cluster of the other pli.
+    long numberOfPairs = (long) pli.size() * otherPLI.size();
+    long numberOfScannedRows = Math.min((long) pli.getNumberOfClusterRows() * otherPLI.size(),
+      (long) otherPLI.getNumberOfClusterRows() * pli.size());
+    return numberOfPairs + numberOfScannedRows;
+  }
+
+  @Override
+  public PositionListIndex intersect(PositionListIndex pli, PositionListIndex otherPLI) {
+    if ((!pli.hasSortedClusters()) || (!otherPLI.hasSortedClusters())) {
+      throw new IllegalArgumentException("Only plis with sorted clusters can be merged.");
+    }
+
+    return pli.calculateMergeIntersection(otherPLI);
+  }
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PLICache} with a second tier on disk. Plis evicted from memory are written to a pli
+ * file (see {@link PLIFileWriter}) if recalculating them is expensive compared to reading them
+ * back: a pli is admitted if its recalculation cost is at least the admission ratio times the
+ * number of ints in its file. Spilled plis are memory mapped (see {@link PLIFileReader}) when they
+ * are requested again and return to the memory tier. Spilled plis are also considered as operands
+ * when a missing pli is calculated from its cached subsets, the chosen ones are read back. The
+ * spill files share a disk budget in bytes, the least recently used spill file is deleted first.
+ * Spill files that cannot be written or read are dropped and the pli is recalculated. <p/> Closing
+ * the cache deletes all spill files.
+ */
+public class SpillingPLICache extends PLICache implements Closeable {
+
+  public static final double DEFAULT_ADMISSION_RATIO = 2;
+
+  protected final File spillDirectory;
+  protected final long maximumSpillSize;
+  protected final double admissionRatio;
+  // In least recently used order, as spilled plis are removed when they are read back.
+  protected final Map<ColumnCombinationBitset, SpilledEntry> spilledEntries =
+    new LinkedHashMap<>();
+  protected final SetTrie spilledColumnCombinations;
+  protected long spillSize = 0;
+  protected long numberOfReloads = 0;
+
+  /**
+   * @param columnPLIs        the plis of all single columns in column order
+   * @param maximumMemorySize the memory budget of the cached column combinations in bytes
+   * @param evictionPolicy    the order in which plis are evicted from memory
+   * @param spillDirectory    the directory to write the spill files to
+   * @param maximumSpillSize  the disk budget of the spill files in bytes
+   */
+  public SpillingPLICache(List<? extends PositionListIndex> columnPLIs, long maximumMemorySize,
+                          EvictionPolicy evictionPolicy, File spillDirectory,
+                          long maximumSpillSize)
+  {
+    this(columnPLIs, maximumMemorySize, evictionPolicy, spillDirectory, maximumSpillSize,
+      DEFAULT_ADMISSION_RATIO);
+  }
+
+  /**
+   * @param columnPLIs        the plis of all single columns in column order
+   * @param maximumMemorySize the memory budget of the cached column combinations in bytes
+   * @param evictionPolicy    the order in which plis are evicted from memory
+   * @param spillDirectory    the directory to write the spill files to
+   * @param maximumSpillSize  the disk budget of the spill files in bytes
+   * @param admissionRatio    the minimum ratio of recalculation cost to spilled ints
+   */
+  public SpillingPLICache(List<? extends PositionListIndex> columnPLIs, long maximumMemorySize,
+                          EvictionPolicy evictionPolicy, File spillDirectory,
+                          long maximumSpillSize, double admissionRatio)
+  {
+    super(columnPLIs, maximumMemorySize, evictionPolicy);
+    this.spillDirectory = spillDirectory;
+    this.maximumSpillSize = maximumSpillSize;
+    this.admissionRatio = admissionRatio;
+    this.spilledColumnCombinations = new SetTrie(columnPLIs.size());
+  }
+
+  /**
+   * Returns the pli of the column combination if it is cached in memory or on disk. Spilled plis
+   * are mapped and moved back to the memory tier, reloads are counted as hits.
+   * @param columnCombination a non empty column combination
+   * @return the pli of the column combination or null if it is not cached
+   * @throws ColumnIndexOutOfBoundsException if the column combination contains an unknown column
+   */
+  @Override
+  public PositionListIndex getIfPresent(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    PositionListIndex pli = super.getIfPresent(columnCombination);
+    if (pli != null) {
+      return pli;
+    }
+
+    SpilledEntry spilledEntry = spilledEntries.get(columnCombination);
+    if (spilledEntry == null) {
+      return null;
+    }
+
+    pli = reload(spilledEntry);
+    if (pli != null) {
+      numberOfHits++;
+    }
+    return pli;
+  }
+
+  /**
+   * @return the number of plis on disk
+   */
+  public int getNumberOfSpilledPLIs() {
+    return spilledEntries.size();
+  }
+
+  /**
+   * @return the size of all spill files in bytes
+   */
+  public long getSpillSize() {
+    return spillSize;
+  }
+
+  /**
+   * @return the number of plis read back from disk
+   */
+  public long getNumberOfReloads() {
+    return numberOfReloads;
+  }
+
+  /**
+   * Selects the operands among the cached plis in memory and on disk. Reading back a spilled
+   * operand can evict or drop another chosen operand, in which case the selection is repeated.
+   * @param columnCombination a column combination of at least two columns
+   * @return the plis to intersect
+   */
+  @Override
+  protected List<PositionListIndex> selectOperands(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    while (true) {
+      List<PositionListIndex> operands = super.selectOperands(columnCombination);
+      if (!operands.contains(null)) {
+        return operands;
+      }
+    }
+  }
+
+  @Override
+  protected List<ColumnCombinationBitset> getCachedSubsets(
+    ColumnCombinationBitset columnCombination)
+  {
+    List<ColumnCombinationBitset> subsets = super.getCachedSubsets(columnCombination);
+    for (ColumnCombinationBitset subset : spilledColumnCombinations
+      .getExistingSubsets(columnCombination)) {
+      if ((!subset.isEmpty()) && (!subset.equals(columnCombination))) {
+        subsets.add(subset);
+      }
+    }
+    return subsets;
+  }
+
+  /**
+   * Spilled plis are not read back to compare their raw key errors.
+   */
+  @Override
+  protected int peekRawKeyError(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    SpilledEntry spilledEntry = spilledEntries.get(columnCombination);
+    if (spilledEntry != null) {
+      return spilledEntry.rawKeyError;
+    }
+
+    return super.peekRawKeyError(columnCombination);
+  }
+
+  /**
+   * Spilled plis are not read back to estimate their recalculation cost.
+   */
+  @Override
+  protected int peekNumberOfClusterRows(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    SpilledEntry spilledEntry = spilledEntries.get(columnCombination);
+    if (spilledEntry != null) {
+      return spilledEntry.numberOfClusterRows;
+    }
+
+    return super.peekNumberOfClusterRows(columnCombination);
+  }
+
+  /**
+   * Reads spilled plis back without counting a hit.
+   * @param columnCombination a cached column combination
+   * @return the cached pli or null if it has been dropped in the meantime
+   */
+  @Override
+  protected PositionListIndex peek(ColumnCombinationBitset columnCombination)
+    throws ColumnIndexOutOfBoundsException
+  {
+    if ((columnCombination.size() == 1) || entries.containsKey(columnCombination)) {
+      return super.peek(columnCombination);
+    }
+
+    SpilledEntry spilledEntry = spilledEntries.get(columnCombination);
+    if (spilledEntry == null) {
+      return null;
+    }
+    return reload(spilledEntry);
+  }
+
+  /**
+   * Maps the spilled pli, deletes its spill file and moves it back to the memory tier.
+   * @param spilledEntry the spilled entry
+   * @return the reloaded pli or null if the spill file could not be read
+   */
+  protected PositionListIndex reload(SpilledEntry spilledEntry)
+    throws ColumnIndexOutOfBoundsException
+  {
+    PositionListIndex pli;
+    // The mapping stays valid after the spill file has been deleted.
+    try (PLIFileReader reader = new PLIFileReader(spilledEntry.file)) {
+      pli = reader.getPLI(0);
+    }
+    catch (IOException e) {
+      return null;
+    }
+    finally {
+      deleteSpilledEntry(spilledEntry);
+    }
+
+    numberOfReloads++;
+    add(spilledEntry.columnCombination, pli, spilledEntry.cost);
+    return pli;
+  }
+
+  /**
+   * Replaces a spilled copy of the pli, as it is outdated.
+   */
+  @Override
+  protected void add(ColumnCombinationBitset columnCombination, PositionListIndex pli,
+                     long cost) throws ColumnIndexOutOfBoundsException
+  {
+    SpilledEntry spilledEntry = spilledEntries.get(columnCombination);
+    if (spilledEntry != null) {
+      deleteSpilledEntry(spilledEntry);
+    }
+
+    super.add(columnCombination, pli, cost);
+  }
+
+  /**
+   * Reloaded plis are charged with their mapped clusters, so the mappings count against the memory
+   * budget like the heap plis they replace.
+   * @param pli the pli to cache
+   * @return the memory size of the pli in bytes
+   */
+  @Override
+  protected long measureMemorySize(PositionListIndex pli) {
+    if (pli instanceof MappedPositionListIndex) {
+      return pli.getMemorySize() + ((MappedPositionListIndex) pli).getMappedSize();
+    }
+
+    return super.measureMemorySize(pli);
+  }
+
+  /**
+   * Writes the evicted pli to disk if it is admitted and frees the disk budget.
+   * @param entry the evicted entry
+   */
+  @Override
+  protected void evict(CacheEntry entry)
+    throws ColumnIndexOutOfBoundsException
+  {
+    long numberOfInts = entry.pli.getNumberOfClusterRows() + entry.pli.size() + 1;
+    if (entry.cost < admissionRatio * numberOfInts) {
+      return;
+    }
+
+    File file = null;
+    try {
+      file = File.createTempFile("pli", ".plis", spillDirectory);
+      try (PLIFileWriter writer = new PLIFileWriter(file)) {
+        writer.write(Collections.singletonList(entry.pli));
+      }
+    }
+    catch (IOException e) {
+      if (file != null) {
+        deleteFile(file);
+      }
+      return;
+    }
+
+    long fileSize = file.length();
+    if (fileSize > maximumSpillSize) {
+      deleteFile(file);
+      return;
+    }
+
+    spilledEntries.put(entry.columnCombination, new SpilledEntry(entry.columnCombination, file,
+      fileSize, entry.cost, entry.pli.getRawKeyError(), entry.pli.getNumberOfClusterRows()));
+    spilledColumnCombinations.add(entry.columnCombination);
+    spillSize += fileSize;
+
+    Iterator<SpilledEntry> leastRecentlyUsed = spilledEntries.values().iterator();
+    while (spillSize > maximumSpillSize) {
+      SpilledEntry spilledEntry = leastRecentlyUsed.next();
+      leastRecentlyUsed.remove();
+      spilledColumnCombinations.remove(spilledEntry.columnCombination);
+      spillSize -= spilledEntry.fileSize;
+      deleteFile(spilledEntry.file);
+    }
+  }
+
+  protected void deleteSpilledEntry(SpilledEntry spilledEntry) {
+    spilledEntries.remove(spilledEntry.columnCombination);
+    spilledColumnCombinations.remove(spilledEntry.columnCombination);
+    spillSize -= spilledEntry.fileSize;
+    deleteFile(spilledEntry.file);
+  }
+
+  /**
+   * Deletes the spill file. Files that are still mapped cannot be deleted on some platforms and
+   * are deleted on exit.
+   * @param file the spill file
+   */
+  protected void deleteFile(File file) {
+    if (!file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+
+  /**
+   * Deletes all spill files.
+   */
+  @Override
+  public void close() {
+    for (SpilledEntry spilledEntry : spilledEntries.values()) {
+      deleteFile(spilledEntry.file);
+      spilledColumnCombinations.remove(spilledEntry.columnCombination);
+    }
+    spilledEntries.clear();
+    spillSize = 0;
+  }
+
+  /**
+   * A pli written to disk.
+   */
+  protected static class SpilledEntry {
+
+    protected final ColumnCombinationBitset columnCombination;
+    protected final File file;
+    protected final long fileSize;
+    protected final long cost;
+    protected final int rawKeyError;
+    protected final int numberOfClusterRows;
+
+    protected SpilledEntry(ColumnCombinationBitset columnCombination, File file, long fileSize,
+                           long cost, int rawKeyError, int numberOfClusterRows)
+    {
+      this.columnCombination = columnCombination;
+      this.file = file;
+      this.fileSize = fileSize;
+      this.cost = cost;
+      this.rawKeyError = rawKeyError;
+      this.numberOfClusterRows = numberOfClusterRows;
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.AdaptiveIntersectionStrategy}
+ */
+public class AdaptiveIntersectionStrategyTest {
+
+  /**
+   * Test method for {@link AdaptiveIntersectionStrategy#chooseStrategy(PositionListIndex,
+   * PositionListIndex)}
+   * <p>
+   * Sparse plis over many rows should be hash probed, dense plis with many clusters array probed,
+   * plis with very few dense clusters intersected with bitmaps and sorted plis with few clusters
+   * merged. All choices should return the same intersection as the array probe.
+   */
+  @Test
+  public void testChooseStrategy() {
+    // Setup
+    PositionListIndex.freeMaterializationBuffer();
+    AdaptiveIntersectionStrategy strategy = new AdaptiveIntersectionStrategy();
+    PositionListIndex sparsePLI = createPLI(2, 2, 1000000, false);
+    PositionListIndex otherSparsePLI = createPLI(3, 2, 1000000, false);
+    PositionListIndex densePLI = createPLI(400, 2, 1000, false);
+    PositionListIndex otherDensePLI = createPLI(300, 3, 1000, false);
+    PositionListIndex lowCardinalityPLI = createPLI(2, 500, 1000, false);
+    PositionListIndex otherLowCardinalityPLI = createPLI(3, 300, 1000, false);
+    PositionListIndex hugeClusterPLI = createPLI(1, 1000, 1000, true);
+    PositionListIndex fewClustersPLI = createPLI(2, 2, 1000, true);
+
+    // Execute functionality
+    // Check result
+    assertChosen(HashProbeIntersectionStrategy.class, strategy, sparsePLI, otherSparsePLI);
+    assertChosen(ArrayProbeIntersectionStrategy.class, strategy, densePLI, otherDensePLI);
+    assertChosen(BitmapIntersectionStrategy.class, strategy, lowCardinalityPLI,
+      otherLowCardinalityPLI);
+    assertChosen(SortedMergeIntersectionStrategy.class, strategy, hugeClusterPLI, fewClustersPLI);
+  }
+
+  /**
+   * Test method for {@link AdaptiveIntersectionStrategy#chooseStrategy(PositionListIndex,
+   * PositionListIndex)}
+   * <p>
+   * Only the cluster rows are written to and cleared from a materialization buffer the thread
+   * already holds, so sparse plis over many rows should be array probed once the buffer exists.
+   */
+  @Test
+  public void testChooseStrategyMaterializationBuffer() {
+    // Setup
+    AdaptiveIntersectionStrategy strategy = new AdaptiveIntersectionStrategy();
+    PositionListIndex sparsePLI = createPLI(2, 2, 1000000, false);
+    PositionListIndex otherSparsePLI = createPLI(3, 2, 1000000, false);
+    PositionListIndex.freeMaterializationBuffer();
+    IntersectionStrategy chosenStrategyWithoutBuffer =
+      strategy.chooseStrategy(sparsePLI, otherSparsePLI);
+    PositionListIndex.releaseMaterializationBuffer(
+      PositionListIndex.acquireMaterializationBuffer(sparsePLI.getNumberOfRows()));
+
+    // Execute functionality
+    // Check result
+    try {
+      assertEquals(HashProbeIntersectionStrategy.class, chosenStrategyWithoutBuffer.getClass());
+      assertChosen(ArrayProbeIntersectionStrategy.class, strategy, sparsePLI, otherSparsePLI);
+    }
+    finally {
+      PositionListIndex.freeMaterializationBuffer();
+    }
+  }
+
+  /**
+   * Test method for {@link AdaptiveIntersectionStrategy#AdaptiveIntersectionStrategy(IntersectionStrategy...)}
+   * <p>
+   * At least one candidate strategy is needed.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorWithoutStrategies() {
+    // Execute functionality
+    // Check result
+    new AdaptiveIntersectionStrategy(new IntersectionStrategy[0]);
+  }
+
+  protected void assertChosen(Class<? extends IntersectionStrategy> expectedStrategy,
+                              AdaptiveIntersectionStrategy strategy, PositionListIndex pli,
+                              PositionListIndex otherPLI)
+  {
+    assertEquals(expectedStrategy, strategy.chooseStrategy(pli, otherPLI).getClass());
+    assertEquals(new ArrayProbeIntersectionStrategy().intersect(pli, otherPLI),
+      pli.intersect(otherPLI, strategy));
+  }
+
+  /**
+   * Creates a pli whose i-th cluster contains the rows i, i + numberOfClusters, i + 2 *
+   * numberOfClusters and so on.
+   */
+  protected PositionListIndex createPLI(int numberOfClusters, int clusterSize, int numberOfRows,
+                                        boolean clustersSorted)
+  {
+    List<IntArrayList> clusters = new ArrayList<>();
+    for (int i = 0; i < numberOfClusters; i++) {
+      IntArrayList cluster = new IntArrayList();
+      for (int j = 0; j < clusterSize; j++) {
+        cluster.add(i + j * numberOfClusters);
+      }
+      clusters.add(cluster);
+    }
+
+    return new PositionListIndex(clusters, numberOfRows, clustersSorted);
+  }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.CompactPositionListIndex}
+ */
+public class CompactPositionListIndexTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#CompactPositionListIndex(PositionListIndex)}
+   * <p>
+   * The clusters should be stored in one flat array separated by offsets.
+   */
+  @Test
+  public void testConstructor() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    // Expected values
+    int[] expectedRowIndices = {2, 4, 8, 5, 6, 7};
+    int[] expectedClusterOffsets = {0, 3, 6};
+
+    // Execute functionality
+    CompactPositionListIndex compactPLI = new CompactPositionListIndex(firstPLI);
+
+    // Check result
+    assertArrayEquals(expectedRowIndices, compactPLI.rowIndices);
+    assertArrayEquals(expectedClusterOffsets, compactPLI.clusterOffsets);
+    assertEquals(firstPLI, compactPLI);
+    assertEquals(compactPLI, firstPLI);
+    assertEquals(firstPLI.hashCode(), compactPLI.hashCode());
+    assertEquals(firstPLI.getClusters(), compactPLI.getClusters());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#intersect(PositionListIndex)}
+   * <p>
+   * Compact plis should be intersected with compact and with boxed plis.
+   */
+  @Test
+  public void testIntersect() {
+    // Setup
+    CompactPositionListIndex firstPLI = new CompactPositionListIndex(fixture.getFirstPLI());
+    CompactPositionListIndex secondPLI = new CompactPositionListIndex(fixture.getSecondPLI());
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    PositionListIndex actualCompactIntersection = firstPLI.intersect(secondPLI);
+    PositionListIndex actualMixedIntersection = fixture.getFirstPLI().intersect(secondPLI);
+    PositionListIndex actualProbedIntersection = firstPLI.intersect(secondPLI, Integer.MAX_VALUE);
+
+    // Check result
+    assertTrue(actualProbedIntersection instanceof CompactPositionListIndex);
+    assertEquals(expectedPLI, actualProbedIntersection);
+    assertEquals(expectedPLI.getClusters(), actualProbedIntersection.getClusters());
+    assertEquals(expectedPLI, actualCompactIntersection);
+    assertEquals(expectedPLI, actualMixedIntersection);
+    assertEquals(expectedPLI.getClusters(), actualCompactIntersection.getClusters());
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(),
+      actualCompactIntersection.getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#asArray()}
+   */
+  @Test
+  public void testAsArray() {
+    // Setup
+    CompactPositionListIndex firstPLI = new CompactPositionListIndex(fixture.getFirstPLI());
+
+    // Execute functionality
+    // Check result
+    assertArrayEquals(fixture.getFirstPLIAsArray(), firstPLI.asArray());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#getRawKeyError()} and {@link
+   * CompactPositionListIndex#size()}
+   */
+  @Test
+  public void testGetRawKeyErrorAndSize() {
+    // Setup
+    CompactPositionListIndex firstPLI =
+      new CompactPositionListIndex(new int[] {2, 4, 8, 5, 6, 7}, new int[] {0, 3, 6}, 9);
+    CompactPositionListIndex emptyPLI =
+      new CompactPositionListIndex(new int[0], new int[] {0}, 9);
+
+    // Execute functionality
+    // Check result
+    assertEquals(fixture.getExpectedFirstPLIRawKeyError(), firstPLI.getRawKeyError());
+    assertEquals(fixture.getFirstPLISize(), firstPLI.size());
+    assertEquals(0, emptyPLI.getRawKeyError());
+    assertTrue(emptyPLI.isUnique());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#clone()}
+   */
+  @Test
+  public void testClone() {
+    // Setup
+    CompactPositionListIndex pli = new CompactPositionListIndex(fixture.getFirstPLI());
+    int expectedLargestClusterSize = pli.getLargestClusterSize();
+
+    // Execute functionality
+    CompactPositionListIndex copy = pli.clone();
+
+    // Check result
+    assertEquals(pli, copy);
+    assertEquals(expectedLargestClusterSize, copy.largestClusterSize);
+    assertNotSame(pli.rowIndices, copy.rowIndices);
+    assertNotSame(pli.clusterOffsets, copy.clusterOffsets);
+  }
+
+  /**
+   * Tests whether the compact plis can be serialized and deserialized correctly.
+   */
+  @Test
+  public void testSerialization() throws IOException, ClassNotFoundException {
+    // Setup
+    // Expected values
+    CompactPositionListIndex expectedPli = new CompactPositionListIndex(fixture.getSecondPLI());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(out);
+
+    // Execute functionality
+    oos.writeObject(expectedPli);
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+    PositionListIndex actualPli = (PositionListIndex) ois.readObject();
+
+    // Check result
+    assertEquals(expectedPli, actualPli);
+    assertEquals(fixture.getExpectedSecondPLIRawKeyError(), actualPli.getRawKeyError());
+  }
+
+}
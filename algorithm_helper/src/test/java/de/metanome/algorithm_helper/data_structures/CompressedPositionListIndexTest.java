@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.CompressedPositionListIndex}
+ */
+public class CompressedPositionListIndexTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link CompressedPositionListIndex#CompressedPositionListIndex(PositionListIndex)}
+   * <p>
+   * The compressed pli should contain the sorted clusters of the original pli.
+   */
+  @Test
+  public void testConstructor() {
+    // Setup
+    PositionListIndex permutatedFirstPLI = fixture.getPermutatedFirstPLI();
+    // Expected values
+    List<IntArrayList> expectedClusters = new ArrayList<>();
+    expectedClusters.add(new IntArrayList(new int[] {5, 6, 7}));
+    expectedClusters.add(new IntArrayList(new int[] {2, 2, 4, 8}));
+
+    // Execute functionality
+    CompressedPositionListIndex compressedPLI =
+      new CompressedPositionListIndex(permutatedFirstPLI);
+
+    // Check result
+    assertEquals(expectedClusters, compressedPLI.getClusters());
+    assertEquals(permutatedFirstPLI, compressedPLI);
+    assertEquals(permutatedFirstPLI.getRawKeyError(), compressedPLI.getRawKeyError());
+    assertEquals(permutatedFirstPLI.size(), compressedPLI.size());
+  }
+
+  /**
+   * Test method for {@link CompressedPositionListIndex#getCompressedSize()}
+   * <p>
+   * Large clusters of close rows should need about one byte per row.
+   */
+  @Test
+  public void testCompressedSize() {
+    // Setup
+    int clusterSize = 1000;
+    IntArrayList cluster = new IntArrayList();
+    for (int i = 0; i < clusterSize; i++) {
+      cluster.add(100000 + 2 * i);
+    }
+    List<IntArrayList> clusters = new ArrayList<>();
+    clusters.add(cluster);
+
+    // Execute functionality
+    CompressedPositionListIndex compressedPLI =
+      new CompressedPositionListIndex(clusters, 100000 + 2 * clusterSize);
+
+    // Check result
+    assertTrue(compressedPLI.getCompressedSize() < clusterSize + 8);
+    assertEquals(cluster, compressedPLI.getClusters().get(0));
+  }
+
+  /**
+   * Test method for {@link CompressedPositionListIndex#intersect(PositionListIndex)}
+   * <p>
+   * Compressed plis should be intersected with compressed and with boxed plis.
+   */
+  @Test
+  public void testIntersect() {
+    // Setup
+    CompressedPositionListIndex firstPLI = new CompressedPositionListIndex(fixture.getFirstPLI());
+    CompressedPositionListIndex secondPLI =
+      new CompressedPositionListIndex(fixture.getSecondPLI());
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    // Check result
+    assertEquals(expectedPLI, firstPLI.intersect(secondPLI));
+    assertEquals(expectedPLI, fixture.getFirstPLI().intersect(secondPLI));
+    assertEquals(expectedPLI, firstPLI.intersect(fixture.getSecondPLI()));
+  }
+
+  /**
+   * Test method for {@link CompressedPositionListIndex#asArray()}
+   */
+  @Test
+  public void testAsArray() {
+    // Setup
+    CompressedPositionListIndex firstPLI = new CompressedPositionListIndex(fixture.getFirstPLI());
+
+    // Execute functionality
+    // Check result
+    assertArrayEquals(fixture.getFirstPLIAsArray(), firstPLI.asArray());
+  }
+
+  /**
+   * Test method for {@link CompressedPositionListIndex#clone()}
+   */
+  @Test
+  public void testClone() {
+    // Setup
+    CompressedPositionListIndex pli = new CompressedPositionListIndex(fixture.getFirstPLI());
+
+    // Execute functionality
+    CompressedPositionListIndex copy = pli.clone();
+
+    // Check result
+    assertEquals(pli, copy);
+    assertNotSame(pli.compressedClusters, copy.compressedClusters);
+  }
+
+  /**
+   * Tests whether the compressed plis can be serialized and deserialized correctly.
+   */
+  @Test
+  public void testSerialization() throws IOException, ClassNotFoundException {
+    // Setup
+    // Expected values
+    CompressedPositionListIndex expectedPli =
+      new CompressedPositionListIndex(fixture.getSecondPLI());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(out);
+
+    // Execute functionality
+    oos.writeObject(expectedPli);
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+    PositionListIndex actualPli = (PositionListIndex) ois.readObject();
+
+    // Check result
+    assertEquals(expectedPli, actualPli);
+    assertArrayEquals(expectedPli.asArray(), actualPli.asArray());
+  }
+
+}
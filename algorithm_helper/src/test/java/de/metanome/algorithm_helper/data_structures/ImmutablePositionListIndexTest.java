@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ImmutablePositionListIndex}
+ */
+public class ImmutablePositionListIndexTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link ImmutablePositionListIndex#copyOf(PositionListIndex)}
+   * <p>
+   * The copy should equal the original pli and carry its statistics. Immutable plis should not be
+   * copied again.
+   */
+  @Test
+  public void testCopyOf() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+
+    // Execute functionality
+    ImmutablePositionListIndex immutablePLI = ImmutablePositionListIndex.copyOf(firstPLI);
+
+    // Check result
+    assertEquals(firstPLI, immutablePLI);
+    assertEquals(immutablePLI, firstPLI);
+    assertEquals(firstPLI.hashCode(), immutablePLI.hashCode());
+    assertEquals(fixture.getExpectedFirstPLIRawKeyError(), immutablePLI.getRawKeyError());
+    assertEquals(fixture.getFirstPLISize(), immutablePLI.size());
+    assertEquals(3, immutablePLI.getLargestClusterSize());
+    assertEquals(firstPLI.getNumberOfRows(), immutablePLI.getNumberOfRows());
+    assertSame(immutablePLI, ImmutablePositionListIndex.copyOf(immutablePLI));
+    assertSame(immutablePLI, immutablePLI.clone());
+  }
+
+  /**
+   * Test method for {@link ImmutablePositionListIndex#clusterIterator(int)} and {@link
+   * ImmutablePositionListIndex#getClusters()}
+   * <p>
+   * Clusters should be readable without exposing the internal arrays.
+   */
+  @Test
+  public void testClusterIterator() {
+    // Setup
+    ImmutablePositionListIndex immutablePLI =
+      ImmutablePositionListIndex.copyOf(fixture.getFirstPLI());
+    // Expected values
+    IntArrayList expectedCluster = new IntArrayList(new int[] {5, 6, 7});
+
+    // Execute functionality
+    IntArrayList actualCluster = new IntArrayList();
+    for (IntIterator iterator = immutablePLI.clusterIterator(1); iterator.hasNext(); ) {
+      actualCluster.add(iterator.nextInt());
+    }
+    immutablePLI.getClusters().get(1).set(0, 42);
+
+    // Check result
+    assertEquals(expectedCluster, actualCluster);
+    assertEquals(3, immutablePLI.getClusterSize(1));
+    assertEquals(fixture.getFirstPLI(), immutablePLI);
+  }
+
+  /**
+   * Test method for {@link ImmutablePositionListIndex#intersect(PositionListIndex)}
+   * <p>
+   * A shared immutable pli should be intersected concurrently without copies.
+   */
+  @Test
+  public void testConcurrentIntersect() throws InterruptedException, ExecutionException {
+    // Setup
+    final ImmutablePositionListIndex firstPLI =
+      ImmutablePositionListIndex.copyOf(fixture.getFirstPLI());
+    final ImmutablePositionListIndex secondPLI =
+      ImmutablePositionListIndex.copyOf(fixture.getSecondPLI());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    List<Future<PositionListIndex>> futures = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      futures.add(executor.submit(new Callable<PositionListIndex>() {
+        @Override
+        public PositionListIndex call() {
+          return firstPLI.intersect(secondPLI);
+        }
+      }));
+    }
+
+    // Check result
+    for (Future<PositionListIndex> future : futures) {
+      assertEquals(expectedPLI, future.get());
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Tests whether immutable plis can be serialized and deserialized correctly.
+   */
+  @Test
+  public void testSerialization() throws IOException, ClassNotFoundException {
+    // Setup
+    // Expected values
+    ImmutablePositionListIndex expectedPli =
+      ImmutablePositionListIndex.copyOf(fixture.getSecondPLI());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(out);
+
+    // Execute functionality
+    oos.writeObject(expectedPli);
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+    PositionListIndex actualPli = (PositionListIndex) ois.readObject();
+
+    // Check result
+    assertTrue(actualPli instanceof ImmutablePositionListIndex);
+    assertEquals(expectedPli, actualPli);
+    assertEquals(fixture.getExpectedSecondPLIRawKeyError(), actualPli.getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link ImmutablePositionListIndex#setNumberOfRows(int)}
+   * <p>
+   * Immutable plis should reject in place modifications.
+   */
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSetNumberOfRows() {
+    // Setup
+    ImmutablePositionListIndex pli = ImmutablePositionListIndex.copyOf(fixture.getSecondPLI());
+
+    // Execute functionality
+    pli.setNumberOfRows(pli.getNumberOfRows() + 1);
+  }
+
+}
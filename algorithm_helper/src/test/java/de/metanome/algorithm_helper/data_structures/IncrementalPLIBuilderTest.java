@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.metanome.algorithm_integration.input.InputIterationException;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.IncrementalPLIBuilder}
+ */
+public class IncrementalPLIBuilderTest {
+
+  protected PLIBuilderFixture fixture;
+  protected IncrementalPLIBuilder builder;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+    builder = new IncrementalPLIBuilder(fixture.getInputGenerator().generateNewCopy());
+  }
+
+  /**
+   * Test method for {@link IncrementalPLIBuilder#getPLIList()}
+   * <p>
+   * Before any batch is applied the plis should equal the plis of the {@link PLIBuilder}.
+   */
+  @Test
+  public void testGetPLIList() throws PLIBuildingException, InputIterationException {
+    // Setup
+    // Expected values
+    List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(true);
+
+    // Execute functionality
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+
+    // Check result
+    assertEquals(expectedPLIList, actualPLIList);
+    assertEquals(fixture.getExpectedDistinctSortedColumns(), builder.getDistinctSortedColumns());
+  }
+
+  /**
+   * Test method for {@link IncrementalPLIBuilder#addRows(java.util.List)}
+   * <p>
+   * The live plis should equal the plis built from scratch over the extended relation.
+   */
+  @Test
+  public void testAddRows() throws Exception {
+    // Setup
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+    List<ArrayList<String>> rows = new ArrayList<>();
+    rows.add(new ArrayList<>(Arrays.asList("6", "1", "3", "2")));
+    rows.add(new ArrayList<>(Arrays.asList("1", "2", "4", null)));
+    fixture.table.addAll(rows);
+    for (PositionListIndex pli : actualPLIList) {
+      pli.getStatistics();
+    }
+    // Expected values
+    List<PositionListIndex> expectedPLIList =
+      new PLIBuilder(fixture.getInputGenerator().generateNewCopy()).getPLIList();
+
+    // Execute functionality
+    int actualFirstRowId = builder.addRows(rows);
+
+    // Check result
+    assertEquals(5, actualFirstRowId);
+    assertEquals(7, builder.getNumberOfTuples());
+    assertEquals(expectedPLIList, actualPLIList);
+    for (int i = 0; i < expectedPLIList.size(); i++) {
+      assertEquals(expectedPLIList.get(i).getRawKeyError(), actualPLIList.get(i).getRawKeyError());
+      assertEquals(7, actualPLIList.get(i).getNumberOfRows());
+      assertEquals(expectedPLIList.get(i).getStatistics(), actualPLIList.get(i).getStatistics());
+    }
+  }
+
+  /**
+   * Test method for {@link IncrementalPLIBuilder#addRows(java.util.List)}
+   * <p>
+   * A batch with a malformed row in the middle should be rejected without appending any of its
+   * rows.
+   */
+  @Test
+  public void testAddRowsMalformedRow() throws Exception {
+    // Setup
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+    List<ArrayList<String>> rows = new ArrayList<>();
+    rows.add(new ArrayList<>(Arrays.asList("6", "1", "3", "2")));
+    rows.add(new ArrayList<>(Arrays.asList("1", "2")));
+    rows.add(new ArrayList<>(Arrays.asList("1", "2", "4", null)));
+    // Expected values
+    List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(true);
+
+    // Execute functionality
+    try {
+      builder.addRows(rows);
+      fail("Expected exception has not been thrown.");
+    }
+    catch (IllegalArgumentException e) {
+      // Intentionally left blank.
+    }
+
+    // Check result
+    assertEquals(5, builder.getNumberOfTuples());
+    assertEquals(expectedPLIList, actualPLIList);
+    for (int i = 0; i < expectedPLIList.size(); i++) {
+      assertEquals(expectedPLIList.get(i).getRawKeyError(), actualPLIList.get(i).getRawKeyError());
+      assertEquals(5, actualPLIList.get(i).getNumberOfRows());
+    }
+  }
+
+  /**
+   * Test method for {@link IncrementalPLIBuilder#removeRows(it.unimi.dsi.fastutil.ints.IntCollection)}
+   * <p>
+   * Deleted rows should be removed from their clusters and clusters that become unary should be
+   * dropped. Row ids are not reused.
+   */
+  @Test
+  public void testRemoveRows() throws Exception {
+    // Setup
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+    // Expected values
+    List<IntArrayList> expectedClusters = new ArrayList<>();
+    expectedClusters.add(new IntArrayList(new int[]{2, 3}));
+    PositionListIndex expectedPLI = new PositionListIndex(expectedClusters, 5);
+
+    // Execute functionality
+    builder.removeRows(new IntArrayList(new int[]{1, 4}));
+
+    // Check result
+    assertEquals(expectedPLI, actualPLIList.get(2));
+    assertEquals(0, actualPLIList.get(0).getRawKeyError());
+    assertEquals(2, actualPLIList.get(1).getRawKeyError());
+    assertEquals(1, actualPLIList.get(2).getRawKeyError());
+    assertEquals(1, actualPLIList.get(3).getRawKeyError());
+    assertEquals(3, actualPLIList.get(1).getLargestClusterSize());
+    assertEquals(5, builder.getNumberOfTuples());
+    assertEquals(2, builder.getNumberOfDeletedRows());
+    assertTrue(builder.isDeleted(4));
+    assertFalse(builder.isDeleted(3));
+  }
+
+  /**
+   * Test method for {@link IncrementalPLIBuilder#removeRows(it.unimi.dsi.fastutil.ints.IntCollection)}
+   * <p>
+   * Deleting a row twice should fail.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testRemoveDeletedRow() throws Exception {
+    // Setup
+    builder.removeRows(new IntArrayList(new int[]{1}));
+
+    // Execute functionality
+    builder.removeRows(new IntArrayList(new int[]{1}));
+  }
+
+}
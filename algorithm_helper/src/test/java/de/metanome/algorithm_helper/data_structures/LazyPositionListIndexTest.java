@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.LazyPositionListIndex}
+ */
+public class LazyPositionListIndexTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#intersectLazily(PositionListIndex)}
+   * <p>
+   * The intersection should only be calculated when the clusters are needed.
+   */
+  @Test
+  public void testIntersectLazily() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    LazyPositionListIndex actualPLI = firstPLI.intersectLazily(secondPLI);
+
+    // Check result
+    assertFalse(actualPLI.isMaterialized());
+    assertEquals(9, actualPLI.getNumberOfRows());
+    assertFalse(actualPLI.isMaterialized());
+    assertEquals(expectedPLI, actualPLI);
+    assertTrue(actualPLI.isMaterialized());
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(), actualPLI.getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link LazyPositionListIndex#getRawKeyErrorUpperBound()}
+   * <p>
+   * The smallest raw key error of the operands bounds the raw key error of the intersection.
+   */
+  @Test
+  public void testGetRawKeyErrorUpperBound() {
+    // Setup
+    LazyPositionListIndex lazyPLI = fixture.getFirstPLI().intersectLazily(fixture.getSecondPLI());
+
+    // Execute functionality
+    int actualUpperBound = lazyPLI.getRawKeyErrorUpperBound();
+
+    // Check result
+    assertEquals(fixture.getExpectedFirstPLIRawKeyError(), actualUpperBound);
+    assertFalse(lazyPLI.isMaterialized());
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(), lazyPLI.getRawKeyError());
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(),
+      lazyPLI.getRawKeyErrorUpperBound());
+  }
+
+  /**
+   * Test method for {@link LazyPositionListIndex#LazyPositionListIndex(List)}
+   * <p>
+   * Chained lazy intersections should be fused into one intersection of all operands, the
+   * intermediate intersection should never be calculated.
+   */
+  @Test
+  public void testChainedIntersections() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    List<IntArrayList> thirdClusters = new LinkedList<>();
+    thirdClusters.add(new IntArrayList(new int[]{2, 6, 7, 8}));
+    PositionListIndex thirdPLI = new PositionListIndex(thirdClusters, 9);
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI().intersect(thirdPLI);
+
+    // Execute functionality
+    LazyPositionListIndex intermediatePLI = firstPLI.intersectLazily(secondPLI);
+    LazyPositionListIndex actualPLI = intermediatePLI.intersectLazily(thirdPLI);
+
+    // Check result
+    assertEquals(Arrays.asList(firstPLI, secondPLI, thirdPLI), actualPLI.operands);
+    assertEquals(expectedPLI, actualPLI);
+    assertEquals(expectedPLI.getRawKeyError(), actualPLI.getRawKeyError());
+    assertFalse(intermediatePLI.isMaterialized());
+  }
+
+  /**
+   * Test method for {@link LazyPositionListIndex#isUnique()}
+   * <p>
+   * The intersection with a unique pli is unique without intersecting.
+   */
+  @Test
+  public void testIsUnique() {
+    // Setup
+    PositionListIndex uniquePLI = new PositionListIndex(new ArrayList<IntArrayList>(), 9);
+
+    // Execute functionality
+    LazyPositionListIndex lazyPLI = fixture.getFirstPLI().intersectLazily(uniquePLI);
+
+    // Check result
+    assertTrue(lazyPLI.isUnique());
+    assertEquals(0, lazyPLI.getRawKeyError());
+    assertFalse(fixture.getFirstPLI().intersectLazily(fixture.getSecondPLI()).isUnique());
+  }
+
+  /**
+   * Test method for {@link LazyPositionListIndex#LazyPositionListIndex(java.util.List)}
+   * <p>
+   * Operands over different numbers of rows should be rejected on construction.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorDifferentNumberOfRows() {
+    // Setup
+    PositionListIndex otherPLI = new PositionListIndex(new ArrayList<IntArrayList>(), 10);
+
+    // Execute functionality
+    // Check result
+    fixture.getFirstPLI().intersectLazily(otherPLI);
+  }
+
+  /**
+   * Tests whether lazy plis are materialized on serialization.
+   */
+  @Test
+  public void testSerialization() throws IOException, ClassNotFoundException {
+    // Setup
+    LazyPositionListIndex lazyPLI = fixture.getFirstPLI().intersectLazily(fixture.getSecondPLI());
+    // Expected values
+    PositionListIndex expectedPli = fixture.getExpectedIntersectedPLI();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(out);
+
+    // Execute functionality
+    oos.writeObject(lazyPLI);
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+    PositionListIndex actualPli = (PositionListIndex) ois.readObject();
+
+    // Check result
+    assertEquals(expectedPli, actualPli);
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(), actualPli.getRawKeyError());
+  }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLICache}
+ */
+public class PLICacheTest {
+
+  protected List<PositionListIndex> columnPLIs;
+
+  @Before
+  public void setUp() throws Exception {
+    columnPLIs = new PLIBuilderFixture().getExpectedPLIList(true);
+  }
+
+  /**
+   * Test method for {@link PLICache#get(ColumnCombinationBitset)}
+   * <p>
+   * Missing plis should be calculated and cached, single columns should always be available.
+   */
+  @Test
+  public void testGet() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, Long.MAX_VALUE, PLICache.EvictionPolicy.LRU);
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(1, 2);
+    // Expected values
+    PositionListIndex expectedPLI = columnPLIs.get(1).intersect(columnPLIs.get(2));
+
+    // Execute functionality
+    PositionListIndex actualPLI = cache.get(columnCombination);
+    // Comparing the plis caches their canonical clusters, so the memory size is measured first.
+    long actualPLIMemorySize = actualPLI.getMemorySize();
+
+    // Check result
+    assertEquals(expectedPLI, actualPLI);
+    assertSame(actualPLI, cache.get(columnCombination));
+    assertSame(columnPLIs.get(3), cache.get(new ColumnCombinationBitset(3)));
+    assertNull(cache.getIfPresent(new ColumnCombinationBitset(0, 1)));
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getNumberOfMisses());
+    assertEquals(2, cache.getNumberOfHits());
+    assertEquals(actualPLIMemorySize, cache.getMemorySize());
+  }
+
+  /**
+   * Test method for {@link PLICache#get(ColumnCombinationBitset)}
+   * <p>
+   * Missing plis should be calculated from the covering pair of cached subsets with the smallest
+   * raw key errors.
+   */
+  @Test
+  public void testGetFromSubsets() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, Long.MAX_VALUE, PLICache.EvictionPolicy.LRU);
+    PositionListIndex subsetPLI = cache.get(new ColumnCombinationBitset(1, 2));
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(1, 2, 3);
+    // Expected values
+    List<PositionListIndex> expectedOperands = Arrays.asList(columnPLIs.get(3), subsetPLI);
+    PositionListIndex expectedPLI = PositionListIndex.intersectAll(
+      Arrays.asList(columnPLIs.get(1), columnPLIs.get(2), columnPLIs.get(3)));
+
+    // Execute functionality
+    List<PositionListIndex> actualOperands = cache.selectOperands(columnCombination);
+    PositionListIndex actualPLI = cache.get(columnCombination);
+
+    // Check result
+    assertEquals(2, actualOperands.size());
+    assertSame(expectedOperands.get(0), actualOperands.get(0));
+    assertSame(expectedOperands.get(1), actualOperands.get(1));
+    assertEquals(expectedPLI, actualPLI);
+    assertEquals(expectedPLI, cache.get(new ColumnCombinationBitset(0, 1, 2, 3)));
+  }
+
+  /**
+   * Test method for {@link PLICache#put(ColumnCombinationBitset, PositionListIndex)}
+   * <p>
+   * The least recently used or the least frequently used pli should be evicted once the memory
+   * budget is exceeded.
+   */
+  @Test
+  public void testEvictionLRULFU() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PositionListIndex pli = columnPLIs.get(2);
+    ColumnCombinationBitset first = new ColumnCombinationBitset(0, 1);
+    ColumnCombinationBitset second = new ColumnCombinationBitset(0, 2);
+    ColumnCombinationBitset third = new ColumnCombinationBitset(0, 3);
+    PLICache lruCache = new PLICache(columnPLIs, 2 * pli.getMemorySize(),
+      PLICache.EvictionPolicy.LRU);
+    PLICache lfuCache = new PLICache(columnPLIs, 2 * pli.getMemorySize(),
+      PLICache.EvictionPolicy.LFU);
+
+    // Execute functionality
+    for (PLICache cache : Arrays.asList(lruCache, lfuCache)) {
+      cache.put(first, pli);
+      cache.put(second, pli);
+      cache.getIfPresent(first);
+      cache.getIfPresent(first);
+      cache.getIfPresent(second);
+      cache.put(third, pli);
+    }
+
+    // Check result
+    assertNull(lruCache.getIfPresent(first));
+    assertNotNull(lruCache.getIfPresent(second));
+    assertNotNull(lfuCache.getIfPresent(first));
+    assertNull(lfuCache.getIfPresent(second));
+    assertNotNull(lruCache.getIfPresent(third));
+    assertNotNull(lfuCache.getIfPresent(third));
+    assertEquals(2 * pli.getMemorySize(), lruCache.getMemorySize());
+  }
+
+  /**
+   * Test method for {@link PLICache#put(ColumnCombinationBitset, PositionListIndex)}
+   * <p>
+   * The pli that is cheapest to recalculate per byte should be evicted first.
+   */
+  @Test
+  public void testEvictionCostAware() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PositionListIndex pli = columnPLIs.get(2);
+    ColumnCombinationBitset expensive = new ColumnCombinationBitset(1, 2);
+    ColumnCombinationBitset cheap = new ColumnCombinationBitset(0, 3);
+    PLICache cache = new PLICache(columnPLIs, 2 * pli.getMemorySize(),
+      PLICache.EvictionPolicy.COST_AWARE);
+
+    // Execute functionality
+    cache.put(expensive, pli);
+    cache.put(cheap, pli);
+    cache.put(new ColumnCombinationBitset(2, 3), pli);
+
+    // Check result
+    assertNotNull(cache.getIfPresent(expensive));
+    assertNull(cache.getIfPresent(cheap));
+    assertEquals(2, cache.size());
+  }
+
+  /**
+   * Test method for {@link PLICache#put(ColumnCombinationBitset, PositionListIndex, long)}
+   * <p>
+   * The recalculation cost passed by the caller should decide the eviction.
+   */
+  @Test
+  public void testPutWithCost() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PositionListIndex pli = columnPLIs.get(2);
+    ColumnCombinationBitset expensive = new ColumnCombinationBitset(0, 3);
+    ColumnCombinationBitset cheap = new ColumnCombinationBitset(1, 2);
+    PLICache cache = new PLICache(columnPLIs, 2 * pli.getMemorySize(),
+      PLICache.EvictionPolicy.COST_AWARE);
+
+    // Execute functionality
+    cache.put(expensive, pli, 1000);
+    cache.put(cheap, pli, 1);
+    cache.put(new ColumnCombinationBitset(2, 3), pli, 1000);
+
+    // Check result
+    assertNotNull(cache.getIfPresent(expensive));
+    assertNull(cache.getIfPresent(cheap));
+    assertEquals(2, cache.size());
+  }
+
+  /**
+   * Test method for {@link PLICache#put(ColumnCombinationBitset, PositionListIndex)}
+   * <p>
+   * Lazy intersections should be materialized before their memory size is accounted.
+   */
+  @Test
+  public void testPutLazyIntersection() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, Long.MAX_VALUE, PLICache.EvictionPolicy.LRU);
+    LazyPositionListIndex lazyPLI = columnPLIs.get(1).intersectLazily(columnPLIs.get(2));
+
+    // Execute functionality
+    cache.put(new ColumnCombinationBitset(1, 2), lazyPLI);
+
+    // Check result
+    assertTrue(lazyPLI.isMaterialized());
+    assertEquals(lazyPLI.getMemorySize(), cache.getMemorySize());
+  }
+
+  /**
+   * Test method for {@link PLICache#get(ColumnCombinationBitset)}
+   * <p>
+   * Plis larger than the memory budget should not be cached.
+   */
+  @Test
+  public void testPLILargerThanBudget() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, 1, PLICache.EvictionPolicy.LRU);
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(1, 2);
+
+    // Execute functionality
+    PositionListIndex actualPLI = cache.get(columnCombination);
+
+    // Check result
+    assertNotNull(actualPLI);
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getMemorySize());
+  }
+
+  /**
+   * Test method for {@link PLICache#get(ColumnCombinationBitset)}
+   * <p>
+   * Column combinations with unknown columns should be rejected.
+   */
+  @Test(expected = ColumnIndexOutOfBoundsException.class)
+  public void testGetUnknownColumn() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, Long.MAX_VALUE, PLICache.EvictionPolicy.LRU);
+
+    // Execute functionality
+    cache.get(new ColumnCombinationBitset(1, 4));
+  }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLIFileReader}
+ */
+public class PLIFileReaderTest {
+
+  protected PositionListIndexFixture fixture;
+  protected File pliFile;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+    pliFile = File.createTempFile("metanome", ".plis");
+
+    List<PositionListIndex> plis = new ArrayList<>();
+    plis.add(fixture.getFirstPLI());
+    plis.add(fixture.getSecondPLI());
+    plis.add(new PositionListIndex());
+    try (PLIFileWriter writer = new PLIFileWriter(pliFile)) {
+      writer.write(plis);
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pliFile.delete();
+  }
+
+  /**
+   * Test method for {@link PLIFileReader#getPLI(int)}
+   * <p>
+   * The written plis should be read back.
+   */
+  @Test
+  public void testGetPLI() throws IOException {
+    // Execute functionality
+    try (PLIFileReader reader = new PLIFileReader(pliFile)) {
+      // Check result
+      assertEquals(3, reader.getNumberOfPLIs());
+      assertEquals(fixture.getFirstPLI(), reader.getPLI(0));
+      assertEquals(fixture.getSecondPLI(), reader.getPLI(1));
+      assertEquals(new PositionListIndex(), reader.getPLI(2));
+      assertSame(reader.getPLI(1), reader.getPLI(1));
+      assertEquals(fixture.getExpectedSecondPLIRawKeyError(), reader.getPLI(1).getRawKeyError());
+      assertArrayEquals(fixture.getFirstPLIAsArray(), reader.getPLI(0).asArray());
+    }
+  }
+
+  /**
+   * Test method for {@link PLIFileReader#getPLIs()}
+   * <p>
+   * Mapped plis should be usable after the reader was closed.
+   */
+  @Test
+  public void testGetPLIs() throws IOException {
+    // Setup
+    List<PositionListIndex> plis;
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    try (PLIFileReader reader = new PLIFileReader(pliFile)) {
+      plis = new ArrayList<>(reader.getPLIs());
+    }
+
+    // Check result
+    assertEquals(expectedPLI, plis.get(0).intersect(plis.get(1)));
+    assertEquals(expectedPLI, plis.get(0).intersect(fixture.getSecondPLI()));
+  }
+
+  /**
+   * Mapped plis should be serialized as {@link CompactPositionListIndex}.
+   */
+  @Test
+  public void testSerialization() throws IOException, ClassNotFoundException {
+    // Setup
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(out);
+
+    // Execute functionality
+    try (PLIFileReader reader = new PLIFileReader(pliFile)) {
+      oos.writeObject(reader.getPLI(0));
+    }
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+    Object actualPli = ois.readObject();
+
+    // Check result
+    assertTrue(actualPli instanceof CompactPositionListIndex);
+    assertEquals(fixture.getFirstPLI(), actualPli);
+  }
+
+  /**
+   * Test method for {@link PLIFileReader#PLIFileReader(File)}
+   * <p>
+   * Files with a wrong magic number or version should be rejected.
+   */
+  @Test
+  public void testReadInvalidFile() throws IOException {
+    // Setup
+    File invalidFile = File.createTempFile("metanome", ".plis");
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(invalidFile))) {
+      output.writeInt(PLIFileWriter.MAGIC_NUMBER);
+      output.writeInt(PLIFileWriter.VERSION + 1);
+      output.writeInt(0);
+    }
+
+    // Execute functionality
+    // Check result
+    try {
+      new PLIFileReader(invalidFile).close();
+      fail("Expected exception has not been thrown.");
+    }
+    catch (IOException e) {
+      // Intentionally left blank.
+    }
+    finally {
+      invalidFile.delete();
+    }
+  }
+
+  /**
+   * Test method for {@link PLIFileReader#PLIFileReader(File)}
+   * <p>
+   * Files with a header that does not fit the file should be rejected.
+   */
+  @Test
+  public void testReadTruncatedFile() throws IOException {
+    // Setup
+    File truncatedFile = File.createTempFile("metanome", ".plis");
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(truncatedFile))) {
+      output.writeInt(PLIFileWriter.MAGIC_NUMBER);
+      output.writeInt(PLIFileWriter.VERSION);
+      output.writeInt(2);
+      output.writeLong(28);
+      output.writeLong(1000);
+    }
+
+    // Execute functionality
+    // Check result
+    try {
+      new PLIFileReader(truncatedFile).close();
+      fail("Expected exception has not been thrown.");
+    }
+    catch (IOException e) {
+      // Intentionally left blank.
+    }
+    finally {
+      truncatedFile.delete();
+    }
+  }
+
+  /**
+   * Test method for {@link PLIFileReader#getPLI(int)}
+   * <p>
+   * Plis with sorted clusters should be read back with sorted clusters.
+   */
+  @Test
+  public void testGetPLISortedClusters() throws IOException {
+    // Setup
+    File sortedFile = File.createTempFile("metanome", ".plis");
+    PositionListIndex sortedPLI =
+      new PositionListIndex(fixture.getFirstPLI().getClusters(), 9, true);
+
+    // Execute functionality
+    try {
+      try (PLIFileWriter writer = new PLIFileWriter(sortedFile)) {
+        writer.write(Arrays.asList(sortedPLI, fixture.getSecondPLI()));
+      }
+      try (PLIFileReader reader = new PLIFileReader(sortedFile)) {
+        // Check result
+        assertTrue(reader.getPLI(0).hasSortedClusters());
+        assertFalse(reader.getPLI(1).hasSortedClusters());
+        assertEquals(sortedPLI, reader.getPLI(0));
+      }
+    }
+    finally {
+      sortedFile.delete();
+    }
+  }
+
+  /**
+   * Test method for {@link PLIFileReader#getPLI(int)}
+   * <p>
+   * Sections with corrupt cluster offsets or rows outside of the pli's rows should be rejected.
+   */
+  @Test
+  public void testGetPLICorruptSection() throws IOException {
+    // Setup
+    File corruptOffsetsFile = writeSingleClusterFile(new int[]{0, 3}, new int[]{0, 1});
+    File corruptRowsFile = writeSingleClusterFile(new int[]{0, 2}, new int[]{0, 5});
+
+    // Execute functionality
+    // Check result
+    try {
+      for (File corruptFile : Arrays.asList(corruptOffsetsFile, corruptRowsFile)) {
+        try (PLIFileReader reader = new PLIFileReader(corruptFile)) {
+          reader.getPLI(0);
+          fail("Expected exception has not been thrown.");
+        }
+        catch (IOException e) {
+          // Intentionally left blank.
+        }
+      }
+    }
+    finally {
+      corruptOffsetsFile.delete();
+      corruptRowsFile.delete();
+    }
+  }
+
+  protected File writeSingleClusterFile(int[] clusterOffsets, int[] rowIndices)
+    throws IOException
+  {
+    File file = File.createTempFile("metanome", ".plis");
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+      output.writeInt(PLIFileWriter.MAGIC_NUMBER);
+      output.writeInt(PLIFileWriter.VERSION);
+      output.writeInt(1);
+      output.writeLong(PLIFileWriter.HEADER_SIZE + 8);
+      output.writeInt(4);
+      output.writeInt(rowIndices.length - 1);
+      output.writeInt(0);
+      output.writeInt(clusterOffsets.length - 1);
+      output.writeInt(rowIndices.length);
+      for (int clusterOffset : clusterOffsets) {
+        output.writeInt(clusterOffset);
+      }
+      for (int row : rowIndices) {
+        output.writeInt(row);
+      }
+    }
+    return file;
+  }
+
+}
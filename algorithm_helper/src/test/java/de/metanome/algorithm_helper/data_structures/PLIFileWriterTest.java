@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLIFileWriter}
+ */
+public class PLIFileWriterTest {
+
+  protected PositionListIndexFixture fixture;
+  protected File pliFile;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+    pliFile = File.createTempFile("metanome", ".plis");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pliFile.delete();
+  }
+
+  /**
+   * Test method for {@link PLIFileWriter#write(java.util.List)}
+   * <p>
+   * A file holds a single header, so the plis should only be written once.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testWriteTwice() throws IOException {
+    // Setup
+    try (PLIFileWriter writer = new PLIFileWriter(pliFile)) {
+      writer.write(Arrays.asList(fixture.getFirstPLI()));
+
+      // Execute functionality
+      writer.write(Arrays.asList(fixture.getSecondPLI()));
+    }
+  }
+
+}
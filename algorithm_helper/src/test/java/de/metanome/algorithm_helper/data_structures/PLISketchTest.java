@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLISketch}
+ */
+public class PLISketchTest {
+
+  protected static final int NUMBER_OF_ROWS = 100000;
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link PLISketch#create(PositionListIndex, int)}
+   * <p>
+   * All rows of small relations should be sampled, so the estimates are exact.
+   */
+  @Test
+  public void testCreate() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+
+    // Execute functionality
+    PLISketch actualSketch = PLISketch.create(firstPLI, PLISketch.DEFAULT_SAMPLE_SIZE);
+
+    // Check result
+    assertEquals(firstPLI.getNumberOfRows(), actualSketch.getSampleSize());
+    assertEquals(5, actualSketch.estimateNumberOfDistinctValues());
+    assertEquals(fixture.getExpectedFirstPLIRawKeyError(), actualSketch.estimateRawKeyError());
+    assertEquals(fixture.getExpectedFirstPLIRawKeyError(),
+      actualSketch.getRawKeyErrorLowerBound());
+    assertTrue(actualSketch.isKnownNonUnique());
+  }
+
+  /**
+   * Test method for {@link PLISketch#intersect(PLISketch)}
+   * <p>
+   * The sketch of an intersection should be calculated from the operands' sketches and should be
+   * available from lazy intersections without materializing them.
+   */
+  @Test
+  public void testIntersect() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    LazyPositionListIndex lazyIntersection = firstPLI.intersectLazily(secondPLI);
+    // Expected values
+    int expectedRawKeyError = fixture.getExpectedIntersectedPLIRawKeyError();
+
+    // Execute functionality
+    PLISketch actualSketch = firstPLI.getSketch().intersect(secondPLI.getSketch());
+    PLISketch actualLazySketch = lazyIntersection.getSketch();
+
+    // Check result
+    assertEquals(expectedRawKeyError, actualSketch.estimateRawKeyError());
+    assertEquals(expectedRawKeyError, actualLazySketch.estimateRawKeyError());
+    assertFalse(lazyIntersection.isMaterialized());
+  }
+
+  /**
+   * Test method for {@link PLISketch#intersect(PLISketch)}
+   * <p>
+   * Sketches of different samples should not be intersected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testIntersectDifferentSamples() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+
+    // Execute functionality
+    PLISketch.create(firstPLI, 4).intersect(PLISketch.create(firstPLI, 5));
+  }
+
+  /**
+   * Test method for {@link PLISketch#estimateNumberOfDistinctValues()}
+   * <p>
+   * The estimates of sampled relations should be close to the number of distinct values and never
+   * undercut the number of distinct values in the sample.
+   */
+  @Test
+  public void testEstimateSampled() {
+    // Setup
+    int[] firstValues = new int[NUMBER_OF_ROWS];
+    int[] secondValues = new int[NUMBER_OF_ROWS];
+    for (int row = 0; row < NUMBER_OF_ROWS; row++) {
+      firstValues[row] = row % 50;
+      secondValues[row] = (row / 50) % 50;
+    }
+    PLISketch firstSketch = createPLI(firstValues).getSketch();
+    PLISketch secondSketch = createPLI(secondValues).getSketch();
+
+    // Execute functionality
+    PLISketch actualSketch = firstSketch.intersect(secondSketch);
+
+    // Check result
+    assertEquals(PLISketch.DEFAULT_SAMPLE_SIZE, actualSketch.getSampleSize());
+    assertEquals(50, firstSketch.estimateNumberOfDistinctValues());
+    assertEquals(2500, actualSketch.estimateNumberOfDistinctValues(), 2500 * 0.25);
+    assertTrue(actualSketch.isKnownNonUnique());
+    assertTrue(actualSketch.getRawKeyErrorLowerBound() <= NUMBER_OF_ROWS - 2500);
+  }
+
+  /**
+   * Test method for {@link PLISketch#estimateRawKeyError()}
+   * <p>
+   * Unique column combinations should be estimated as unique, even if their operands are not.
+   */
+  @Test
+  public void testEstimateUnique() {
+    // Setup
+    int[] firstValues = new int[NUMBER_OF_ROWS];
+    int[] secondValues = new int[NUMBER_OF_ROWS];
+    for (int row = 0; row < NUMBER_OF_ROWS; row++) {
+      firstValues[row] = row % 50;
+      secondValues[row] = row / 2;
+    }
+    PLISketch firstSketch = createPLI(firstValues).getSketch();
+    PLISketch secondSketch = createPLI(secondValues).getSketch();
+
+    // Execute functionality
+    PLISketch actualSketch = firstSketch.intersect(secondSketch);
+
+    // Check result
+    assertEquals(0, actualSketch.estimateRawKeyError());
+    assertFalse(actualSketch.isKnownNonUnique());
+    assertTrue(firstSketch.isKnownNonUnique());
+  }
+
+  protected PositionListIndex createPLI(int[] values) {
+    Int2ObjectOpenHashMap<IntArrayList> valueClusters = new Int2ObjectOpenHashMap<>();
+    for (int row = 0; row < values.length; row++) {
+      IntArrayList cluster = valueClusters.get(values[row]);
+      if (cluster == null) {
+        cluster = new IntArrayList();
+        valueClusters.put(values[row], cluster);
+      }
+      cluster.add(row);
+    }
+
+    List<IntArrayList> clusters = new ArrayList<>();
+    for (IntArrayList cluster : valueClusters.values()) {
+      if (cluster.size() > 1) {
+        clusters.add(cluster);
+      }
+    }
+    return new PositionListIndex(clusters, values.length);
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLIStatistics}
+ */
+public class PLIStatisticsTest {
+
+  /**
+   * Test method for {@link PLIStatistics#calculate(int, it.unimi.dsi.fastutil.ints.IntIterator)}
+   * <p>
+   * All statistics should be derived from the sizes of the non unary clusters.
+   */
+  @Test
+  public void testCalculate() {
+    // Setup
+    IntArrayList clusterSizes = new IntArrayList(new int[]{3, 2});
+    // Expected values
+    int expectedNumberOfRows = 8;
+    int expectedNumberOfClusters = 2;
+    int expectedNumberOfClusterRows = 5;
+    int expectedRawKeyError = 3;
+    int expectedNumberOfDistinctValues = 5;
+    int expectedNumberOfSingletons = 3;
+    int expectedLargestClusterSize = 3;
+    double expectedEntropy = 3 - (3 * Math.log(3) / Math.log(2) + 2) / 8;
+
+    // Execute functionality
+    PLIStatistics actualStatistics = PLIStatistics.calculate(8, clusterSizes.iterator());
+
+    // Check result
+    assertEquals(expectedNumberOfRows, actualStatistics.getNumberOfRows());
+    assertEquals(expectedNumberOfClusters, actualStatistics.getNumberOfClusters());
+    assertEquals(expectedNumberOfClusterRows, actualStatistics.getNumberOfClusterRows());
+    assertEquals(expectedRawKeyError, actualStatistics.getRawKeyError());
+    assertEquals(expectedNumberOfDistinctValues, actualStatistics.getNumberOfDistinctValues());
+    assertEquals(expectedNumberOfSingletons, actualStatistics.getNumberOfSingletons());
+    assertEquals(expectedLargestClusterSize, actualStatistics.getLargestClusterSize());
+    assertEquals(expectedEntropy, actualStatistics.getEntropy(), 1e-9);
+  }
+
+  /**
+   * Test method for {@link PLIStatistics#calculate(int, it.unimi.dsi.fastutil.ints.IntIterator)}
+   * <p>
+   * A unique column should have the maximum entropy, a constant column no entropy at all.
+   */
+  @Test
+  public void testCalculateEntropyBounds() {
+    // Execute functionality
+    PLIStatistics uniqueStatistics = PLIStatistics.calculate(4, new IntArrayList().iterator());
+    PLIStatistics constantStatistics =
+      PLIStatistics.calculate(4, new IntArrayList(new int[]{4}).iterator());
+    PLIStatistics emptyStatistics = PLIStatistics.calculate(0, new IntArrayList().iterator());
+
+    // Check result
+    assertEquals(2, uniqueStatistics.getEntropy(), 1e-9);
+    assertEquals(4, uniqueStatistics.getNumberOfSingletons());
+    assertEquals(0, uniqueStatistics.getLargestClusterSize());
+    assertEquals(0, constantStatistics.getEntropy(), 1e-9);
+    assertEquals(1, constantStatistics.getNumberOfDistinctValues());
+    assertEquals(0, emptyStatistics.getEntropy(), 1e-9);
+  }
+
+  /**
+   * Test method for {@link PLIStatistics#equals(Object)} and {@link PLIStatistics#hashCode()}
+   */
+  @Test
+  public void testEqualsAndHashCode() {
+    // Setup
+    PLIStatistics statistics = new PLIStatistics(8, 2, 5, 3, 1.5);
+    PLIStatistics equalStatistics = new PLIStatistics(8, 2, 5, 3, 1.5);
+    PLIStatistics notEqualStatistics = new PLIStatistics(8, 2, 5, 2, 1.5);
+
+    // Execute functionality
+    // Check result
+    assertEquals(statistics, statistics);
+    assertEquals(statistics, equalStatistics);
+    assertEquals(statistics.hashCode(), equalStatistics.hashCode());
+    assertNotEquals(statistics, notEqualStatistics);
+    assertNotEquals(statistics, null);
+  }
+
+}
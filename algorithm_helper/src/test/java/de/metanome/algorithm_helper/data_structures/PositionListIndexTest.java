@@ -23,8 +23,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -80,6 +84,53 @@ public class PositionListIndexTest {
     assertEquals(expectedPLI, actualIntersectedPLI);
   }
 
+  /**
+   * Test method for {@link PositionListIndex#intersect(PositionListIndex)}
+   * <p>
+   * The intersection of a {@link PositionListIndex} with itself should yield the same clusters.
+   */
+  @Test
+  public void testIntersectWithItself() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getFirstPLI();
+
+    // Execute functionality
+    PositionListIndex actualIntersectedPLI = firstPLI.intersect(firstPLI.clone());
+
+    // Check result
+    assertEquals(expectedPLI, actualIntersectedPLI);
+    assertEquals(expectedPLI.getRawKeyError(), actualIntersectedPLI.getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#intersect(PositionListIndex, IntersectionStrategy)}
+   * <p>
+   * The clusters of a probed intersection should be stored in exactly sized arrays.
+   */
+  @Test
+  public void testIntersectExactClusterSizes() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+
+    // Execute functionality
+    PositionListIndex actualArrayProbePLI =
+      firstPLI.intersect(secondPLI, new ArrayProbeIntersectionStrategy());
+    PositionListIndex actualHashProbePLI =
+      firstPLI.intersect(secondPLI, new HashProbeIntersectionStrategy());
+
+    // Check result
+    assertEquals(fixture.getExpectedIntersectedPLI(), actualArrayProbePLI);
+    for (IntArrayList cluster : actualArrayProbePLI.getClusters()) {
+      assertEquals(cluster.size(), cluster.elements().length);
+    }
+    for (IntArrayList cluster : actualHashProbePLI.getClusters()) {
+      assertEquals(cluster.size(), cluster.elements().length);
+    }
+  }
+
   /**
    * Test method for {@link PositionListIndex#intersect(PositionListIndex)}
    * <p>
@@ -101,6 +152,223 @@ public class PositionListIndexTest {
     assertTrue(actualIntersectedPLI.isUnique());
   }
 
+  /**
+   * Test method for {@link PositionListIndex#intersect(PositionListIndex, int)}
+   * <p>
+   * The intersection should be returned if its raw key error does not exceed the maximum and null
+   * otherwise.
+   */
+  @Test
+  public void testIntersectMaximumRawKeyError() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    int expectedRawKeyError = fixture.getExpectedIntersectedPLIRawKeyError();
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    PositionListIndex actualIntersectedPLI = firstPLI.intersect(secondPLI, expectedRawKeyError);
+    PositionListIndex actualAbortedPLI = firstPLI.intersect(secondPLI, expectedRawKeyError - 1);
+
+    // Check result
+    assertEquals(expectedPLI, actualIntersectedPLI);
+    assertEquals(expectedRawKeyError, actualIntersectedPLI.getRawKeyError());
+    assertNull(actualAbortedPLI);
+    assertTrue(new PositionListIndex().intersect(secondPLI, 0).isUnique());
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#intersect(PositionListIndex, IntersectionStrategy)}
+   * <p>
+   * All intersection strategies should return the same intersection. Merging requires sorted
+   * clusters and should return sorted clusters again.
+   */
+  @Test
+  public void testIntersectStrategies() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    PositionListIndex sortedFirstPLI = new PositionListIndex(firstPLI.getClusters(), 9, true);
+    PositionListIndex sortedSecondPLI = new PositionListIndex(secondPLI.getClusters(), 9, true);
+    List<IntArrayList> hugeClusters = new LinkedList<>();
+    hugeClusters.add(new IntArrayList(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8}));
+    PositionListIndex hugePLI = new PositionListIndex(hugeClusters, 9, true);
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+    int expectedRawKeyError = fixture.getExpectedIntersectedPLIRawKeyError();
+
+    // Execute functionality
+    PositionListIndex actualArrayProbePLI =
+      firstPLI.intersect(secondPLI, new ArrayProbeIntersectionStrategy());
+    PositionListIndex actualHashProbePLI =
+      firstPLI.intersect(secondPLI, new HashProbeIntersectionStrategy());
+    PositionListIndex actualBitmapPLI =
+      firstPLI.intersect(secondPLI, new BitmapIntersectionStrategy());
+    PositionListIndex actualMergePLI =
+      sortedFirstPLI.intersect(sortedSecondPLI, new SortedMergeIntersectionStrategy());
+    PositionListIndex actualHugePLI = hugePLI.intersect(new CompressedPositionListIndex(firstPLI),
+      new SortedMergeIntersectionStrategy());
+
+    // Check result
+    assertEquals(expectedPLI, actualArrayProbePLI);
+    assertEquals(expectedRawKeyError, actualArrayProbePLI.getRawKeyError());
+    assertEquals(expectedPLI, actualHashProbePLI);
+    assertEquals(expectedRawKeyError, actualHashProbePLI.getRawKeyError());
+    assertEquals(expectedPLI, actualBitmapPLI);
+    assertEquals(expectedRawKeyError, actualBitmapPLI.getRawKeyError());
+    assertTrue(actualBitmapPLI.hasSortedClusters());
+    assertEquals(expectedPLI, actualMergePLI);
+    assertEquals(expectedRawKeyError, actualMergePLI.getRawKeyError());
+    assertTrue(actualMergePLI.hasSortedClusters());
+    assertEquals(Long.MAX_VALUE,
+      new SortedMergeIntersectionStrategy().estimateCost(firstPLI, sortedSecondPLI));
+    assertEquals(firstPLI, actualHugePLI);
+    assertEquals(firstPLI.getRawKeyError(), actualHugePLI.getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#intersect(PositionListIndex, ForkJoinPool, int)}
+   * <p>
+   * The parallel intersection should return the same clusters in the same order as the serial
+   * intersection.
+   */
+  @Test
+  public void testIntersectParallel() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    ForkJoinPool pool = new ForkJoinPool(2);
+    // Expected values
+    PositionListIndex expectedPLI = secondPLI.calculateIntersection(firstPLI);
+
+    // Execute functionality
+    PositionListIndex actualSplitPLI = firstPLI.intersect(secondPLI, pool, 1);
+    PositionListIndex actualCompressedPLI =
+      new CompressedPositionListIndex(firstPLI).intersect(secondPLI, pool, 1);
+    PositionListIndex actualSerialPLI = firstPLI.intersect(secondPLI, pool);
+    pool.shutdown();
+
+    // Check result
+    assertEquals(expectedPLI.getClusters(), actualSplitPLI.getClusters());
+    assertEquals(expectedPLI.getRawKeyError(), actualSplitPLI.getRawKeyError());
+    assertEquals(expectedPLI, actualCompressedPLI);
+    assertEquals(expectedPLI.getClusters(), actualSerialPLI.getClusters());
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#intersect(List)} and {@link
+   * PositionListIndex#intersect(List, ExecutorService)}
+   * <p>
+   * Intersecting one pli with several plis should return the pairwise intersections in order.
+   */
+  @Test
+  public void testIntersectMany() throws InterruptedException {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    List<PositionListIndex> otherPLIs = Arrays.asList(fixture.getSecondPLI(),
+      new CompactPositionListIndex(fixture.getFirstPLI()), new PositionListIndex());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    // Expected values
+    List<PositionListIndex> expectedPLIs = Arrays.asList(fixture.getExpectedIntersectedPLI(),
+      fixture.getFirstPLI(), new PositionListIndex(new LinkedList<IntArrayList>(), 9));
+
+    // Execute functionality
+    List<PositionListIndex> actualPLIs = firstPLI.intersect(otherPLIs);
+    List<PositionListIndex> actualParallelPLIs = firstPLI.intersect(otherPLIs, executor);
+    executor.shutdown();
+
+    // Check result
+    assertEquals(expectedPLIs, actualPLIs);
+    assertEquals(expectedPLIs, actualParallelPLIs);
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(),
+      actualParallelPLIs.get(0).getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#intersectAll(List)}
+   * <p>
+   * Intersecting several plis at once should yield the same pli as chained pairwise intersections.
+   */
+  @Test
+  public void testIntersectAll() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    List<IntArrayList> thirdClusters = new LinkedList<>();
+    thirdClusters.add(new IntArrayList(new int[]{2, 6, 7, 8}));
+    PositionListIndex thirdPLI = new PositionListIndex(thirdClusters, 9);
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+    PositionListIndex expectedThreeWayPLI = expectedPLI.intersect(thirdPLI);
+
+    // Execute functionality
+    PositionListIndex actualPLI = PositionListIndex.intersectAll(Arrays.asList(firstPLI, secondPLI));
+    PositionListIndex actualThreeWayPLI = PositionListIndex.intersectAll(
+      Arrays.asList(thirdPLI, new CompactPositionListIndex(firstPLI), secondPLI));
+    PositionListIndex actualUniquePLI = PositionListIndex.intersectAll(
+      Arrays.asList(firstPLI, new PositionListIndex()));
+
+    // Check result
+    assertEquals(expectedPLI, actualPLI);
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(), actualPLI.getRawKeyError());
+    assertEquals(expectedThreeWayPLI, actualThreeWayPLI);
+    assertEquals(expectedThreeWayPLI.getRawKeyError(), actualThreeWayPLI.getRawKeyError());
+    assertTrue(actualUniquePLI.isUnique());
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#countIntersection(PositionListIndex)} and {@link
+   * PositionListIndex#getIntersectionRawKeyError(PositionListIndex)}
+   * <p>
+   * The number of clusters and the raw key error of the intersection should be counted without
+   * intersecting.
+   */
+  @Test
+  public void testCountIntersection() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+    IntPair expectedCount = new IntPair(expectedPLI.size(), expectedPLI.getRawKeyError());
+
+    // Execute functionality
+    IntPair actualCount = firstPLI.countIntersection(secondPLI);
+    int actualRawKeyError = secondPLI.getIntersectionRawKeyError(firstPLI);
+
+    // Check result
+    assertEquals(expectedCount, actualCount);
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(), actualRawKeyError);
+    assertEquals(new IntPair(0, 0), new PositionListIndex().countIntersection(secondPLI));
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#refines(PositionListIndex)}
+   * <p>
+   * A {@link PositionListIndex} should refine another one iff all of its clusters are contained in
+   * clusters of the other one.
+   */
+  @Test
+  public void testRefines() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    PositionListIndex intersectedPLI = fixture.getExpectedIntersectedPLI();
+    PositionListIndex uniquePLI = new PositionListIndex(new LinkedList<IntArrayList>(), 9);
+
+    // Execute functionality
+    // Check result
+    assertTrue(intersectedPLI.refines(firstPLI));
+    assertTrue(intersectedPLI.refines(secondPLI));
+    assertTrue(firstPLI.refines(firstPLI));
+    assertTrue(uniquePLI.refines(firstPLI));
+    assertFalse(firstPLI.refines(secondPLI));
+    assertFalse(secondPLI.refines(firstPLI));
+    assertFalse(firstPLI.refines(intersectedPLI));
+    assertFalse(firstPLI.refines(uniquePLI));
+  }
+
   /**
    * Test method for {{@link PositionListIndex#addOrExtendList(IntList, int, int)}}
    * <p>
@@ -156,6 +424,55 @@ public class PositionListIndexTest {
     assertNotEquals(firstPLI.hashCode(), firstPLIDifferentNumberOfRows.hashCode());
   }
 
+  /**
+   * Test method for {@link PositionListIndex#hashCode()}, and {@link PositionListIndex#equals(Object)}
+   * <p/>
+   * Equality should neither depend on the order of clusters and rows nor on the representation of
+   * the {@link PositionListIndex}. The canonical form should only be computed once.
+   */
+  @Test
+  public void testEqualsHashCodeCanonicalForm() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    List<IntArrayList> reorderedClusters = new LinkedList<>();
+    reorderedClusters.add(new IntArrayList(new int[]{7, 5, 6}));
+    reorderedClusters.add(new IntArrayList(new int[]{8, 2, 4}));
+    PositionListIndex reorderedPLI = new PositionListIndex(reorderedClusters, 9);
+    PositionListIndex compactPLI = new CompactPositionListIndex(reorderedPLI);
+
+    // Execute functionality
+    CanonicalClusters canonicalClusters = firstPLI.getCanonicalClusters();
+
+    // Check result
+    assertEquals(firstPLI, reorderedPLI);
+    assertEquals(firstPLI.hashCode(), reorderedPLI.hashCode());
+    assertEquals(compactPLI, firstPLI);
+    assertEquals(firstPLI, compactPLI);
+    assertEquals(firstPLI.hashCode(), compactPLI.hashCode());
+    assertSame(canonicalClusters, firstPLI.getCanonicalClusters());
+    assertArrayEquals(new int[]{2, 4, 8, 5, 6, 7}, canonicalClusters.rows);
+    assertArrayEquals(new int[]{0, 3, 6}, canonicalClusters.clusterOffsets);
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#getMemorySize()}
+   * <p/>
+   * The canonical clusters cached by hashing should be counted in the memory size.
+   */
+  @Test
+  public void testGetMemorySizeCanonicalClusters() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    long memorySizeBeforeHashing = firstPLI.getMemorySize();
+
+    // Execute functionality
+    firstPLI.hashCode();
+
+    // Check result
+    assertEquals(memorySizeBeforeHashing + firstPLI.getCanonicalClusters().getMemorySize(),
+      firstPLI.getMemorySize());
+  }
+
   /**
    * Test method for {@link PositionListIndex#asHashMap()}
    * <p>
@@ -186,6 +503,62 @@ public class PositionListIndexTest {
     assertArrayEquals(expectedList, firstPLI.asArray());
   }
 
+  /**
+   * Test method for {@link PositionListIndex#asArray(int[])} and {@link
+   * PositionListIndex#clearArray(int[])}
+   * <p>
+   * The pli should be materialized into a larger buffer and clearing should reset the buffer.
+   */
+  @Test
+  public void testAsArrayBuffer() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    int[] buffer = new int[firstPLI.getNumberOfRows() + 3];
+    // Expected values
+    int[] expectedList = fixture.getFirstPLIAsArray();
+
+    // Execute functionality
+    int[] actualList = firstPLI.asArray(buffer);
+    int[] actualMaterializedPrefix = Arrays.copyOf(actualList, expectedList.length);
+    firstPLI.clearArray(buffer);
+
+    // Check result
+    assertSame(buffer, actualList);
+    assertArrayEquals(expectedList, actualMaterializedPrefix);
+    assertArrayEquals(new int[firstPLI.getNumberOfRows() + 3], buffer);
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#acquireMaterializationBuffer(int)}
+   * <p>
+   * Intersections should return the cleared materialization buffer to the thread for reuse.
+   */
+  @Test
+  public void testMaterializationBufferReuse() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    int[] buffer = PositionListIndex.acquireMaterializationBuffer(firstPLI.getNumberOfRows());
+    PositionListIndex.releaseMaterializationBuffer(buffer);
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    PositionListIndex actualFirstIntersection =
+      firstPLI.intersect(secondPLI, new ArrayProbeIntersectionStrategy());
+    PositionListIndex actualSecondIntersection =
+      secondPLI.intersect(firstPLI, new ArrayProbeIntersectionStrategy());
+
+    // Check result
+    assertEquals(expectedPLI, actualFirstIntersection);
+    assertEquals(expectedPLI, actualSecondIntersection);
+    assertTrue(firstPLI.refines(firstPLI));
+    assertSame(buffer,
+      PositionListIndex.acquireMaterializationBuffer(firstPLI.getNumberOfRows()));
+    assertArrayEquals(new int[buffer.length], buffer);
+    PositionListIndex.freeMaterializationBuffer();
+  }
+
   /**
    * Test method for {@link PositionListIndex#size()} <p/> Size should return the correct number of
    * noon unary clusters of the {@link PositionListIndex}.
@@ -200,6 +573,72 @@ public class PositionListIndexTest {
     assertEquals(fixture.getFirstPLISize(), pli.size());
   }
 
+  /**
+   * Test method for {@link PositionListIndex#clusterSizeIterator()}
+   * <p>
+   * The cluster sizes should be iterated in the order of the clusters for every representation.
+   */
+  @Test
+  public void testClusterSizeIterator() {
+    // Setup
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    List<PositionListIndex> plis = Arrays.asList(secondPLI,
+      new CompactPositionListIndex(secondPLI), new CompressedPositionListIndex(secondPLI),
+      ImmutablePositionListIndex.copyOf(secondPLI));
+    // Expected values
+    IntList expectedClusterSizes = new IntArrayList(new int[]{4, 3});
+
+    for (PositionListIndex pli : plis) {
+      // Execute functionality
+      IntList actualClusterSizes = new IntArrayList(pli.clusterSizeIterator());
+
+      // Check result
+      assertEquals(expectedClusterSizes, actualClusterSizes);
+    }
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#visitLargestClusters(int, ClusterVisitor)}
+   * <p>
+   * The largest clusters should be visited in descending size, clusters of equal size in their
+   * original order.
+   */
+  @Test
+  public void testVisitLargestClusters() {
+    // Setup
+    List<IntArrayList> clusters = new LinkedList<>();
+    clusters.add(new IntArrayList(new int[]{0, 3}));
+    clusters.add(new IntArrayList(new int[]{1, 4, 7}));
+    clusters.add(new IntArrayList(new int[]{2, 5}));
+    clusters.add(new IntArrayList(new int[]{6, 8, 9, 10}));
+    PositionListIndex pli = new PositionListIndex(clusters, 11);
+    // Expected values
+    List<IntArrayList> expectedClusters = Arrays.asList(new IntArrayList(new int[]{6, 8, 9, 10}),
+      new IntArrayList(new int[]{1, 4, 7}), new IntArrayList(new int[]{0, 3}));
+
+    // Execute functionality
+    final List<IntArrayList> actualClusters = new LinkedList<>();
+    final List<IntArrayList> actualCompressedClusters = new LinkedList<>();
+    pli.visitLargestClusters(3, new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        actualClusters.add(new IntArrayList(rows, offset, length));
+        return true;
+      }
+    });
+    new CompressedPositionListIndex(pli).visitLargestClusters(3, new ClusterVisitor() {
+      @Override
+      public boolean visitCluster(int[] rows, int offset, int length) {
+        actualCompressedClusters.add(new IntArrayList(rows, offset, length));
+        return true;
+      }
+    });
+
+    // Check result
+    assertEquals(expectedClusters, actualClusters);
+    assertEquals(expectedClusters, actualCompressedClusters);
+  }
+
   /**
    * Test method for {@link PositionListIndex#isEmpty()}, {@link PositionListIndex#isUnique()} <p/>
    * Empty plis should return true on isEmpty and is Unique.
@@ -237,6 +676,37 @@ public class PositionListIndexTest {
       firstPli.intersect(secondPli).getRawKeyError());
   }
 
+  /**
+   * Test method for {@link PositionListIndex#getStatistics()}
+   * <p>
+   * The statistics should be equal for all representations and calculated only once.
+   */
+  @Test
+  public void testGetStatistics() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    List<PositionListIndex> plis = Arrays.asList(firstPLI,
+      new CompactPositionListIndex(firstPLI), new CompressedPositionListIndex(firstPLI),
+      ImmutablePositionListIndex.copyOf(firstPLI));
+    // Expected values
+    double expectedEntropy = (Math.log(9) - 2 * 3 * Math.log(3) / 9) / Math.log(2);
+
+    for (PositionListIndex pli : plis) {
+      // Execute functionality
+      PLIStatistics actualStatistics = pli.getStatistics();
+
+      // Check result
+      assertEquals(9, actualStatistics.getNumberOfRows());
+      assertEquals(fixture.getExpectedFirstPLIRawKeyError(), actualStatistics.getRawKeyError());
+      assertEquals(5, actualStatistics.getNumberOfDistinctValues());
+      assertEquals(3, actualStatistics.getNumberOfSingletons());
+      assertEquals(3, actualStatistics.getLargestClusterSize());
+      assertEquals(expectedEntropy, actualStatistics.getEntropy(), 1e-9);
+      assertSame(actualStatistics, pli.getStatistics());
+      assertEquals(fixture.getExpectedFirstPLIRawKeyError(), pli.getRawKeyError());
+    }
+  }
+
   /**
    * Test method for {@link PositionListIndex#getNumberOfRows()}
    */
@@ -318,4 +788,56 @@ public class PositionListIndexTest {
     assertEquals(expectedSecondPli, actualSecondPli);
   }
 
+  /**
+   * Test method for {@link PositionListIndex#writeObject(ObjectOutputStream)} <p/> Large clusters
+   * with small row distances should use the variable length encoding and spread out rows the plain
+   * encoding. The row order within the clusters and the raw key error should be preserved.
+   */
+  @Test
+  public void testSerializationEncodings() throws IOException, ClassNotFoundException {
+    // Setup
+    List<IntArrayList> denseClusters = new LinkedList<>();
+    List<IntArrayList> sparseClusters = new LinkedList<>();
+    for (int clusterIndex = 0; clusterIndex < 10; clusterIndex++) {
+      IntArrayList denseCluster = new IntArrayList();
+      IntArrayList sparseCluster = new IntArrayList();
+      for (int row = 5000 - clusterIndex; row >= 0; row -= 10) {
+        denseCluster.add(row);
+        sparseCluster.add(row * 400000 + clusterIndex);
+      }
+      denseClusters.add(denseCluster);
+      sparseClusters.add(sparseCluster);
+    }
+    PositionListIndex densePli = new PositionListIndex(denseClusters, 5001);
+    PositionListIndex sparsePli = new PositionListIndex(sparseClusters, Integer.MAX_VALUE);
+
+    // Expected values
+    int expectedDenseRawKeyError = densePli.getRawKeyError();
+    int expectedSparseRawKeyError = sparsePli.getRawKeyError();
+
+    // Execute functionality
+    ByteArrayOutputStream denseOut = new ByteArrayOutputStream();
+    ObjectOutputStream denseOos = new ObjectOutputStream(denseOut);
+    denseOos.writeObject(densePli);
+    denseOos.close();
+    ByteArrayOutputStream sparseOut = new ByteArrayOutputStream();
+    ObjectOutputStream sparseOos = new ObjectOutputStream(sparseOut);
+    sparseOos.writeObject(sparsePli);
+    sparseOos.close();
+
+    PositionListIndex actualDensePli = (PositionListIndex) new ObjectInputStream(
+      new ByteArrayInputStream(denseOut.toByteArray())).readObject();
+    PositionListIndex actualSparsePli = (PositionListIndex) new ObjectInputStream(
+      new ByteArrayInputStream(sparseOut.toByteArray())).readObject();
+
+    // Check result
+    assertTrue(denseOut.size() < 2 * (expectedDenseRawKeyError + densePli.size()));
+    assertTrue(sparseOut.size() > 4 * (expectedSparseRawKeyError + sparsePli.size()));
+    assertEquals(denseClusters, actualDensePli.getClusters());
+    assertEquals(sparseClusters, actualSparsePli.getClusters());
+    assertEquals(expectedDenseRawKeyError, actualDensePli.rawKeyError);
+    assertEquals(expectedSparseRawKeyError, actualSparsePli.rawKeyError);
+    assertEquals(5001, actualDensePli.getNumberOfRows());
+  }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.RowIdCompaction}
+ */
+public class RowIdCompactionTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link RowIdCompaction#RowIdCompaction(PositionListIndex)}
+   * <p>
+   * The rows of non unary clusters should be renumbered in order, all other rows dropped.
+   */
+  @Test
+  public void testRowIds() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+
+    // Execute functionality
+    RowIdCompaction compaction = new RowIdCompaction(firstPLI);
+
+    // Check result
+    assertEquals(6, compaction.getNumberOfRows());
+    assertEquals(9, compaction.getNumberOfOriginalRows());
+    assertEquals(0, compaction.getCompactRowId(2));
+    assertEquals(2, compaction.getCompactRowId(5));
+    assertEquals(5, compaction.getCompactRowId(8));
+    assertEquals(RowIdCompaction.DROPPED_ROW, compaction.getCompactRowId(3));
+    assertEquals(RowIdCompaction.DROPPED_ROW, compaction.getCompactRowId(42));
+    assertEquals(7, compaction.getOriginalRowId(4));
+  }
+
+  /**
+   * Test method for {@link RowIdCompaction#compact(PositionListIndex)} and {@link
+   * RowIdCompaction#expand(PositionListIndex)}
+   * <p>
+   * Compacting is lossless for the plis the compaction has been built from. Intersections of the
+   * compacted plis should expand to the original intersection.
+   */
+  @Test
+  public void testCompactExpand() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    RowIdCompaction compaction = new RowIdCompaction(Arrays.asList(firstPLI, secondPLI));
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    List<PositionListIndex> compactPLIs = compaction.compactAll(Arrays.asList(firstPLI, secondPLI));
+    PositionListIndex actualCompactIntersection = compactPLIs.get(0).intersect(compactPLIs.get(1));
+    PositionListIndex actualIntersection = compaction.expand(actualCompactIntersection);
+
+    // Check result
+    assertEquals(7, compaction.getNumberOfRows());
+    assertEquals(7, compactPLIs.get(0).getNumberOfRows());
+    assertEquals(firstPLI, compaction.expand(compactPLIs.get(0)));
+    assertEquals(secondPLI, compaction.expand(compactPLIs.get(1)));
+    assertEquals(expectedPLI, actualIntersection);
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(), actualIntersection.getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link RowIdCompaction#compact(PositionListIndex)}
+   * <p>
+   * Compacting other plis should drop the rows outside the compaction and discard clusters that
+   * become unary. Intersections with the plis the compaction has been built from are unaffected.
+   */
+  @Test
+  public void testCompactOtherPLI() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    RowIdCompaction compaction = new RowIdCompaction(firstPLI);
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    PositionListIndex actualCompactPLI = compaction.compact(secondPLI);
+    PositionListIndex actualIntersection =
+      compaction.expand(compaction.compact(firstPLI).intersect(actualCompactPLI));
+
+    // Check result
+    assertEquals(2, actualCompactPLI.size());
+    assertEquals(new IntArrayList(new int[]{0, 2, 5}), actualCompactPLI.getClusters().get(0));
+    assertEquals(4, actualCompactPLI.getRawKeyError());
+    assertEquals(expectedPLI, actualIntersection);
+  }
+
+}
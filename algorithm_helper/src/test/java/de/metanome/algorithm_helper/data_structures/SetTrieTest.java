@@ -588,4 +588,24 @@ public class SetTrieTest {
 
     assertEquals(subSetFixture.getGraph(), actualGraph);
   }
+
+  /**
+   * Test method for {@link SetTrie#remove(ColumnCombinationBitset)}
+   * <p>
+   * Removing the only column combination should leave an empty graph.
+   */
+  @Test
+  public void testRemoveLastColumnCombination() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    SetTrie actualGraph = new SetTrie(4);
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(1, 2);
+    actualGraph.add(columnCombination);
+
+    // Execute functionality
+    // Check result
+    assertTrue(actualGraph.remove(columnCombination));
+
+    assertTrue(actualGraph.isEmpty());
+    assertTrue(actualGraph.getExistingSubsets(new ColumnCombinationBitset(1, 2, 3)).isEmpty());
+  }
 }
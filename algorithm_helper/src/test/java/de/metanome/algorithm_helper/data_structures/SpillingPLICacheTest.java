@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.SpillingPLICache}
+ */
+public class SpillingPLICacheTest {
+
+  protected List<PositionListIndex> columnPLIs;
+  protected File spillDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    columnPLIs = new PLIBuilderFixture().getExpectedPLIList(true);
+    spillDirectory = Files.createTempDirectory("metanome").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    for (File file : spillDirectory.listFiles()) {
+      file.delete();
+    }
+    spillDirectory.delete();
+  }
+
+  /**
+   * Test method for {@link SpillingPLICache#getIfPresent(ColumnCombinationBitset)}
+   * <p>
+   * Evicted plis should be written to disk and moved back to memory when they are requested.
+   */
+  @Test
+  public void testSpillAndReload() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PositionListIndex pli = columnPLIs.get(2);
+    ColumnCombinationBitset first = new ColumnCombinationBitset(0, 1);
+    ColumnCombinationBitset second = new ColumnCombinationBitset(0, 2);
+    SpillingPLICache cache = new SpillingPLICache(columnPLIs, pli.getMemorySize(),
+      PLICache.EvictionPolicy.LRU, spillDirectory, Long.MAX_VALUE, 0);
+
+    // Execute functionality
+    cache.put(first, pli);
+    cache.put(second, pli);
+    int spilledPLIsBeforeReload = cache.getNumberOfSpilledPLIs();
+    int spillFilesBeforeReload = spillDirectory.listFiles().length;
+    PositionListIndex actualPLI = cache.getIfPresent(first);
+
+    // Check result
+    assertEquals(1, spilledPLIsBeforeReload);
+    assertEquals(1, spillFilesBeforeReload);
+    assertEquals(pli, actualPLI);
+    assertEquals(1, cache.getNumberOfReloads());
+    assertEquals(1, cache.getNumberOfHits());
+    assertEquals(0, cache.getNumberOfMisses());
+    assertSame(actualPLI, cache.getIfPresent(first));
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getNumberOfSpilledPLIs());
+    assertEquals(pli, cache.getIfPresent(second));
+    assertEquals(2, cache.getNumberOfReloads());
+    assertEquals(1, cache.getNumberOfSpilledPLIs());
+    assertEquals(spillDirectory.listFiles()[0].length(), cache.getSpillSize());
+    assertNull(cache.getIfPresent(new ColumnCombinationBitset(0, 3)));
+  }
+
+  /**
+   * Test method for {@link SpillingPLICache#get(ColumnCombinationBitset)}
+   * <p>
+   * Spilled plis should be considered as operands of missing plis and be read back if chosen.
+   */
+  @Test
+  public void testGetFromSpilledSubset() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    ColumnCombinationBitset spilled = new ColumnCombinationBitset(1, 2);
+    ColumnCombinationBitset cached = new ColumnCombinationBitset(1, 3);
+    SpillingPLICache cache = new SpillingPLICache(columnPLIs, columnPLIs.get(2).getMemorySize(),
+      PLICache.EvictionPolicy.LRU, spillDirectory, Long.MAX_VALUE, 0);
+    cache.put(spilled, columnPLIs.get(1).intersect(columnPLIs.get(2)));
+    cache.put(cached, columnPLIs.get(1).intersect(columnPLIs.get(3)));
+    int spilledPLIsBeforeGet = cache.getNumberOfSpilledPLIs();
+    // Expected values
+    PositionListIndex expectedPLI =
+      columnPLIs.get(1).intersect(columnPLIs.get(2)).intersect(columnPLIs.get(3));
+
+    // Execute functionality
+    PositionListIndex actualPLI = cache.get(new ColumnCombinationBitset(1, 2, 3));
+
+    // Check result
+    assertEquals(1, spilledPLIsBeforeGet);
+    assertEquals(expectedPLI, actualPLI);
+    assertEquals(1, cache.getNumberOfReloads());
+    assertEquals(1, cache.getNumberOfMisses());
+    assertEquals(0, cache.getNumberOfHits());
+  }
+
+  /**
+   * Test method for {@link SpillingPLICache#put(ColumnCombinationBitset, PositionListIndex)}
+   * <p>
+   * Plis that are cheap to recalculate compared to their size should not be written to disk.
+   */
+  @Test
+  public void testAdmission() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PositionListIndex pli = columnPLIs.get(2);
+    SpillingPLICache cache = new SpillingPLICache(columnPLIs, pli.getMemorySize(),
+      PLICache.EvictionPolicy.LRU, spillDirectory, Long.MAX_VALUE);
+
+    // Execute functionality
+    cache.put(new ColumnCombinationBitset(0, 1), pli);
+    cache.put(new ColumnCombinationBitset(0, 2), pli);
+
+    // Check result
+    assertEquals(0, cache.getNumberOfSpilledPLIs());
+    assertEquals(0, cache.getSpillSize());
+    assertEquals(0, spillDirectory.listFiles().length);
+  }
+
+  /**
+   * Test method for {@link SpillingPLICache#put(ColumnCombinationBitset, PositionListIndex)}
+   * <p>
+   * The least recently used spill file should be deleted once the disk budget is exceeded.
+   */
+  @Test
+  public void testSpillBudget() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PositionListIndex pli = columnPLIs.get(2);
+    ColumnCombinationBitset first = new ColumnCombinationBitset(0, 1);
+    ColumnCombinationBitset second = new ColumnCombinationBitset(0, 2);
+    SpillingPLICache unboundedCache = new SpillingPLICache(columnPLIs, pli.getMemorySize(),
+      PLICache.EvictionPolicy.LRU, spillDirectory, Long.MAX_VALUE, 0);
+    unboundedCache.put(first, pli);
+    unboundedCache.put(second, pli);
+    long fileSize = unboundedCache.getSpillSize();
+    unboundedCache.close();
+    SpillingPLICache cache = new SpillingPLICache(columnPLIs, pli.getMemorySize(),
+      PLICache.EvictionPolicy.LRU, spillDirectory, fileSize, 0);
+
+    // Execute functionality
+    cache.put(first, pli);
+    cache.put(second, pli);
+    cache.put(new ColumnCombinationBitset(0, 3), pli);
+
+    // Check result
+    assertEquals(1, cache.getNumberOfSpilledPLIs());
+    assertEquals(fileSize, cache.getSpillSize());
+    assertEquals(1, spillDirectory.listFiles().length);
+    assertNull(cache.getIfPresent(first));
+    assertEquals(pli, cache.getIfPresent(second));
+  }
+
+  /**
+   * Test method for {@link SpillingPLICache#close()}
+   * <p>
+   * Closing the cache should delete all spill files.
+   */
+  @Test
+  public void testClose() throws ColumnIndexOutOfBoundsException {
+    // Setup
+    PositionListIndex pli = columnPLIs.get(2);
+    SpillingPLICache cache = new SpillingPLICache(columnPLIs, pli.getMemorySize(),
+      PLICache.EvictionPolicy.LRU, spillDirectory, Long.MAX_VALUE, 0);
+    cache.put(new ColumnCombinationBitset(0, 1), pli);
+    cache.put(new ColumnCombinationBitset(0, 2), pli);
+
+    // Execute functionality
+    cache.close();
+
+    // Check result
+    assertEquals(0, cache.getNumberOfSpilledPLIs());
+    assertEquals(0, cache.getSpillSize());
+    assertEquals(0, spillDirectory.listFiles().length);
+  }
+
+}
@@ -17,9 +17,13 @@
 package de.metanome.algorithm_helper.data_structures.benchmarks;
 
 import de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset;
+import de.metanome.algorithm_helper.data_structures.ColumnIndexOutOfBoundsException;
 import de.metanome.algorithm_helper.data_structures.GenericPLIBuilder;
 import de.metanome.algorithm_helper.data_structures.PLIBuilderSequential;
 import de.metanome.algorithm_helper.data_structures.PLIBuildingException;
+import de.metanome.algorithm_helper.data_structures.PLICache;
+import de.metanome.algorithm_helper.data_structures.PLIFileReader;
+import de.metanome.algorithm_helper.data_structures.PLIFileWriter;
 import de.metanome.algorithm_helper.data_structures.PositionListIndex;
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
@@ -28,15 +32,11 @@ import de.metanome.backend.input.file.DefaultFileInputGenerator;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author Jakob Zwiener
@@ -45,14 +45,12 @@ public class PLIBenchmarkRunner {
 
   public static void main(String[] args)
       throws IOException, PLIBuildingException, InputGenerationException,
-             AlgorithmConfigurationException, ClassNotFoundException {
+             AlgorithmConfigurationException, ColumnIndexOutOfBoundsException {
 
-    List<PositionListIndex> plis = getPlis("ncvoter1m.plis", "ncvoter1m.csv");
+    List<PositionListIndex> plis = getPlis("ncvoter1m.pli2", "ncvoter1m.csv");
 
-    Map<ColumnCombinationBitset, PositionListIndex> pliStore = new HashMap<>();
-    for (int i = 0; i < plis.size(); i++) {
-      pliStore.put(new ColumnCombinationBitset(i), plis.get(i));
-    }
+    PLICache pliCache = new PLICache(plis, Runtime.getRuntime().maxMemory() / 2,
+      PLICache.EvictionPolicy.COST_AWARE);
 
     BufferedReader input = new BufferedReader(new FileReader("ncvoter10k_incomplete.csv"));
 
@@ -78,7 +76,10 @@ public class PLIBenchmarkRunner {
       ColumnCombinationBitset right = ColumnCombinationBitset.fromString(
         columnCombinationRepresentations[1]);
 
-      pliStore.put(left.union(right), pliStore.get(left).intersect(pliStore.get(right)));
+      PositionListIndex leftPLI = pliCache.get(left);
+      PositionListIndex rightPLI = pliCache.get(right);
+      pliCache.put(left.union(right), leftPLI.intersect(rightPLI),
+        PLICache.calculateCost(Arrays.asList(leftPLI, rightPLI)));
       numberOfIntersects++;
     }
 
@@ -95,15 +96,15 @@ public class PLIBenchmarkRunner {
   }
 
   public static List<PositionListIndex> getPlis(String plisFileName, String inputFileName)
-      throws IOException, AlgorithmConfigurationException, PLIBuildingException,
-             ClassNotFoundException {
+      throws IOException, AlgorithmConfigurationException, PLIBuildingException {
     long beforePLIBuild = System.nanoTime();
 
     List<PositionListIndex> plis;
     if (new File(plisFileName).exists()) {
-      FileInputStream fin = new FileInputStream(plisFileName);
-      ObjectInputStream ois = new ObjectInputStream(fin);
-      plis = (List<PositionListIndex>) ois.readObject();
+      // The mappings stay valid after the reader is closed.
+      try (PLIFileReader reader = new PLIFileReader(new File(plisFileName))) {
+        plis = new ArrayList<>(reader.getPLIs());
+      }
     } else {
       GenericPLIBuilder
           pliBuilder =
@@ -113,9 +114,9 @@ public class PLIBenchmarkRunner {
 
       plis = pliBuilder.getPLIList();
 
-      FileOutputStream fout = new FileOutputStream(plisFileName);
-      ObjectOutputStream oos = new ObjectOutputStream(fout);
-      oos.writeObject(plis);
+      try (PLIFileWriter writer = new PLIFileWriter(new File(plisFileName))) {
+        writer.write(plis);
+      }
     }
 
     long afterPLIBuild = System.nanoTime();
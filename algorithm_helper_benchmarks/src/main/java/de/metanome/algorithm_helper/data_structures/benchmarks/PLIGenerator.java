@@ -19,8 +19,8 @@ package de.metanome.algorithm_helper.data_structures.benchmarks;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
@@ -46,7 +46,7 @@ public class PLIGenerator {
   }
 
   public static PositionListIndex generatePli(int clusterSize, int numberOfClusters) {
-    List<IntArrayList> clusters = new LinkedList<>();
+    List<IntArrayList> clusters = new ArrayList<>(numberOfClusters);
 
     int numberOfRows = clusterSize * numberOfClusters;
 
@@ -21,9 +21,10 @@ import java.io.PrintWriter;
 import java.util.List;
 
 import de.metanome.algorithm_helper.data_structures.PLIBuildingException;
+import de.metanome.algorithm_helper.data_structures.PLIStatistics;
 import de.metanome.algorithm_helper.data_structures.PositionListIndex;
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 
 /**
  * @author Jakob Zwiener
@@ -31,19 +32,22 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 public class PliStatisticsGenerator {
 
   public static void main(String[] args)
-      throws PLIBuildingException, IOException, AlgorithmConfigurationException,
-             ClassNotFoundException {
+      throws PLIBuildingException, IOException, AlgorithmConfigurationException {
 
-    List<PositionListIndex> plis = PLIBenchmarkRunner.getPlis("ncvoter.plis", "ncvoter.csv");
+    List<PositionListIndex> plis = PLIBenchmarkRunner.getPlis("ncvoter.pli2", "ncvoter.csv");
 
     PrintWriter statisticsOutput = new PrintWriter("statistics.txt");
     for (PositionListIndex pli : plis) {
-      List<IntArrayList> clusters = pli.getClusters();
       StringBuilder lineStatistics = new StringBuilder();
-      lineStatistics.append(clusters.size()).append(": ");
-      for (IntArrayList cluster : clusters) {
-        lineStatistics.append(cluster.size()).append(", ");
+      lineStatistics.append(pli.size()).append(": ");
+      for (IntIterator clusterSizes = pli.clusterSizeIterator(); clusterSizes.hasNext(); ) {
+        lineStatistics.append(clusterSizes.nextInt()).append(", ");
       }
+      PLIStatistics statistics = pli.getStatistics();
+      lineStatistics.append("; ").append(statistics.getNumberOfDistinctValues())
+        .append("; ").append(statistics.getNumberOfSingletons())
+        .append("; ").append(statistics.getLargestClusterSize())
+        .append("; ").append(statistics.getEntropy());
       statisticsOutput.println(lineStatistics.toString());
       System.out.println(lineStatistics.toString());
     }